@@ -33,10 +33,8 @@
 
 package org.unicode.ucd;
 
-import javax.xml.transform.sax.TransformerHandler;
 
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public final class Block {
   int first;
@@ -78,13 +76,12 @@ public final class Block {
     return new Block (first, last, name);
   }
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
-    at.addAttribute ("", "first-cp", "first-cp", "CDATA", Ucd.toU (first));
-    at.addAttribute ("", "last-cp", "last-cp", "CDATA", Ucd.toU (last));
-    at.addAttribute ("", "name", "name", "CDATA", name);
-
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
-      ch.endElement (Ucd.NAMESPACE, elt, elt); }
+  public void toXML (XMLWriter w, String elt) throws Exception {
+    w.startElement (elt); {
+      w.codePointAttribute ("first-cp", first);
+      w.codePointAttribute ("last-cp", last);
+      w.attribute ("name", name);
+      w.endElement (elt); }
   }
 
   //----------------------------------------------------------------------------
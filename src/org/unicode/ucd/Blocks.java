@@ -37,10 +37,7 @@ import java.io.PrintStream;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
-import javax.xml.transform.sax.TransformerHandler;
-
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class Blocks {
   final SortedMap<Integer, Block> byFirstCp;
@@ -67,15 +64,14 @@ public class Blocks {
       add (Block.fromXML (at)); }
   }
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
+  public void toXML (XMLWriter w, String elt) throws Exception {
     if (byFirstCp.isEmpty ()) {
       return; }
 
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
+    w.startElement (elt); {
       for (Block b : byFirstCp.values ()) {
-        AttributesImpl at2 = new AttributesImpl ();
-        b.toXML (ch, "block", at2); }
-      ch.endElement(Ucd.NAMESPACE, elt, elt); }
+        b.toXML (w, "block"); }
+      w.endElement (elt); }
   }
 
 
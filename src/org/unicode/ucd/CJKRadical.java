@@ -33,10 +33,8 @@
 
 package org.unicode.ucd;
 
-import javax.xml.transform.sax.TransformerHandler;
 
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class CJKRadical implements Comparable<CJKRadical> {
   String number;
@@ -95,13 +93,12 @@ public class CJKRadical implements Comparable<CJKRadical> {
     return new CJKRadical (number, radical, ideograph);
   }
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
-    at.addAttribute ("", "number", "number", "CDATA", number);
-    at.addAttribute ("", "radical", "radical", "CDATA", radical);
-    at.addAttribute ("", "ideograph", "ideograph", "CDATA", ideograph);
-
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
-      ch.endElement (Ucd.NAMESPACE, elt, elt); }
+  public void toXML (XMLWriter w, String elt) throws Exception {
+    w.startElement (elt); {
+      w.attribute ("number", number);
+      w.attribute ("radical", radical);
+      w.attribute ("ideograph", ideograph);
+      w.endElement (elt); }
   }
 
   //----------------------------------------------------------------------------
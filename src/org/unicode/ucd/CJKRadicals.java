@@ -39,10 +39,7 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
-import javax.xml.transform.sax.TransformerHandler;
-
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class CJKRadicals {
   SortedMap<String, CJKRadical> numbers = null;
@@ -66,18 +63,17 @@ public class CJKRadicals {
       add (CJKRadical.fromXML (at)); }
   }
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
+  public void toXML (XMLWriter w, String elt) throws Exception {
     if (numbers.isEmpty ()) {
       return; }
 
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
+    w.startElement (elt); {
       SortedSet<CJKRadical> values = new TreeSet<CJKRadical> ();
       for (CJKRadical ns : numbers.values ()) {
         values.add (ns); }
       for (CJKRadical ns: values) {
-        AttributesImpl at2 = new AttributesImpl ();
-        ns.toXML (ch, "cjk-radical", at2); }
-      ch.endElement(Ucd.NAMESPACE, elt, elt); }
+        ns.toXML (w, "cjk-radical"); }
+      w.endElement (elt); }
   }
 
   //----------------------------------------------------------------------------
@@ -0,0 +1,159 @@
+// COPYRIGHT AND PERMISSION NOTICE
+//
+// Copyright 2006-2016 Unicode Inc.
+//
+// All rights reserved.
+//
+// Permission is hereby granted, free of charge, to any person
+// obtaining a copy of this software and associated documentation
+// files (the "Software"), to deal in the Software without
+// restriction, including without limitation the rights to use, copy,
+// modify, merge, publish, distribute, and/or sell copies of the
+// Software, and to permit persons to whom the Software is furnished
+// to do so, provided that the above copyright notice(s) and this
+// permission notice appear in all copies of the Software and that
+// both the above copyright notice(s) and this permission notice
+// appear in supporting documentation.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT OF THIRD PARTY RIGHTS. IN NO EVENT SHALL THE
+// COPYRIGHT HOLDER OR HOLDERS INCLUDED IN THIS NOTICE BE LIABLE FOR
+// ANY CLAIM, OR ANY SPECIAL INDIRECT OR CONSEQUENTIAL DAMAGES, OR ANY
+// DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS,
+// WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS
+// ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE
+// OF THIS SOFTWARE.
+//
+// Except as contained in this notice, the name of a copyright holder
+// shall not be used in advertising or otherwise to promote the sale,
+// use or other dealings in this Software without prior written
+// authorization of the copyright holder.
+
+package org.unicode.ucd;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/** The value of a property which is a sequence of code points, such as
+ *  dm or suc. In the UCD files and in the XML representation, it is
+ *  written as space separated hexadecimal numbers, "#" for the code
+ *  point itself, or "" for the empty sequence; toString gives that form
+ *  back.
+ */
+
+public final class CodePoints {
+
+  // "#", the code point which has the property.
+  public static final CodePoints SELF = new CodePoints (-1, null);
+
+  // "", the empty sequence.
+  public static final CodePoints EMPTY = new CodePoints (-1, new int [0]);
+
+  // A sequence of one code point, by far the most frequent case, is
+  // kept in 'cp' alone; otherwise the code points are in 'cps'.
+  private final int cp;
+  private final int[] cps;
+
+  private CodePoints (int cp, int[] cps) {
+    this.cp = cp;
+    this.cps = cps;
+  }
+
+  // If 's' is in the form written by toString, the corresponding
+  // CodePoints; otherwise 's' itself.
+  public static Object fromString (String s) {
+    if ("#".equals (s)) {
+      return SELF; }
+    if ("".equals (s)) {
+      return EMPTY; }
+
+    int length = s.length ();
+    int nb = 1;
+    for (int i = 0; i < length; i++) {
+      if (s.charAt (i) == ' ') {
+        nb++; }}
+
+    int[] result = new int [nb];
+    int start = 0;
+    for (int n = 0; n < nb; n++) {
+      int end = s.indexOf (' ', start);
+      if (end == -1) {
+        end = length; }
+      // toU writes at least four digits, and no leading zeros beyond those
+      if (end - start < 4 || end - start > 6
+          || end - start > 4 && s.charAt (start) == '0') {
+        return s; }
+      int v = 0;
+      for (int i = start; i < end; i++) {
+        char c = s.charAt (i);
+        if ('0' <= c && c <= '9') {
+          v = 16 * v + (c - '0'); }
+        else if ('A' <= c && c <= 'F') {
+          v = 16 * v + (c - 'A' + 10); }
+        else {
+          return s; }}
+      result [n] = v;
+      start = end + 1; }
+
+    if (nb == 1) {
+      return new CodePoints (result [0], null); }
+    return new CodePoints (-1, result);
+  }
+
+  // Converts 'v' if 'p' has code point sequences as values.
+  public static Object valueOf (Property p, String v) {
+    if (v == null || ! p.isCodePoints ()) {
+      return v; }
+    return fromString (v);
+  }
+
+  // Like String.intern: equal values read from XML are the same object.
+  static private Map<Object, Object> interned = new HashMap<Object, Object> ();
+
+  public static synchronized Object intern (Property p, String v) {
+    Object o = valueOf (p, v);
+    Object i = interned.get (o);
+    if (i == null) {
+      interned.put (o, o);
+      i = o; }
+    return i;
+  }
+
+  // Whether this is the sequence made of 'c' alone.
+  public boolean is (int c) {
+    return cps == null && cp == c && this != SELF;
+  }
+
+  public int length () {
+    return cps == null ? 1 : cps.length;
+  }
+
+  public boolean equals (Object o) {
+    if (this == o) {
+      return true; }
+    if (! (o instanceof CodePoints) || this == SELF || o == SELF) {
+      return false; }
+    CodePoints other = (CodePoints) o;
+    return cp == other.cp && Arrays.equals (cps, other.cps);
+  }
+
+  public int hashCode () {
+    return cps == null ? cp : Arrays.hashCode (cps);
+  }
+
+  public String toString () {
+    if (this == SELF) {
+      return "#"; }
+    if (cps == null) {
+      return Ucd.toU (cp); }
+    StringBuilder sb = new StringBuilder ();
+    for (int i = 0; i < cps.length; i++) {
+      if (i != 0) {
+        sb.append (' '); }
+      Ucd.appendU (sb, cps [i]); }
+    return sb.toString ();
+  }
+}
@@ -0,0 +1,163 @@
+// COPYRIGHT AND PERMISSION NOTICE
+//
+// Copyright 2006-2016 Unicode Inc.
+//
+// All rights reserved.
+//
+// Permission is hereby granted, free of charge, to any person
+// obtaining a copy of this software and associated documentation
+// files (the "Software"), to deal in the Software without
+// restriction, including without limitation the rights to use, copy,
+// modify, merge, publish, distribute, and/or sell copies of the
+// Software, and to permit persons to whom the Software is furnished
+// to do so, provided that the above copyright notice(s) and this
+// permission notice appear in all copies of the Software and that
+// both the above copyright notice(s) and this permission notice
+// appear in supporting documentation.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT OF THIRD PARTY RIGHTS. IN NO EVENT SHALL THE
+// COPYRIGHT HOLDER OR HOLDERS INCLUDED IN THIS NOTICE BE LIABLE FOR
+// ANY CLAIM, OR ANY SPECIAL INDIRECT OR CONSEQUENTIAL DAMAGES, OR ANY
+// DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS,
+// WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS
+// ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE
+// OF THIS SOFTWARE.
+//
+// Except as contained in this notice, the name of a copyright holder
+// shall not be used in advertising or otherwise to promote the sale,
+// use or other dealings in this Software without prior written
+// authorization of the copyright holder.
+
+
+package org.unicode.ucd;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** The problems found while loading a UCD. They are recorded rather
+ *  than printed as they are found: loaders may run on several threads,
+ *  and bad data can produce the same problem thousands of times.
+ *  Problems of the same kind, in the same file, for the same property
+ *  and with the same detail are counted together; summary and report
+ *  list them in a stable order, whatever the order they were found in.
+ */
+public class Diagnostics {
+
+  public enum Kind {
+    RESET_IGNORED ("attempt to reset a value (ignored)"),
+    UNKNOWN_VALUE ("unknown value"),
+    NO_U_PREFIX ("code point without U+"),
+    FIELD_COUNT ("wrong number of fields (line ignored)");
+
+    final String description;
+
+    Kind (String description) {
+      this.description = description;
+    }
+  }
+
+  static final class Entry {
+    final Kind kind;
+    final String file;
+    final Property property;
+    final String detail;
+    int count = 0;
+    int firstLine = -1;
+    int firstCp = -1;
+
+    Entry (Kind kind, String file, Property property, String detail) {
+      this.kind = kind;
+      this.file = file;
+      this.property = property;
+      this.detail = detail;
+    }
+  }
+
+  private final Map<List<Object>, Entry> entries = new HashMap<List<Object>, Entry> ();
+
+  /** Records a problem. 'file' may be null, 'line' and 'cp' -1, and
+   *  'p' and 'detail' null, when they do not apply.
+   */
+  public synchronized void record (Kind kind, String file, int line, int cp, Property p, String detail) {
+    List<Object> key = Arrays.<Object>asList (kind, file, p, detail);
+    Entry e = entries.get (key);
+    if (e == null) {
+      e = new Entry (kind, file, p, detail);
+      entries.put (key, e); }
+    e.count++;
+    if (line != -1 && (e.firstLine == -1 || line < e.firstLine)) {
+      e.firstLine = line; }
+    if (cp != -1 && (e.firstCp == -1 || cp < e.firstCp)) {
+      e.firstCp = cp; }
+  }
+
+  public synchronized boolean isEmpty () {
+    return entries.isEmpty ();
+  }
+
+  synchronized List<Entry> sortedEntries () {
+    List<Entry> l = new ArrayList<Entry> (entries.values ());
+    Collections.sort (l, new Comparator<Entry> () {
+      public int compare (Entry a, Entry b) {
+        int c = compareStrings (a.file, b.file);
+        if (c == 0) {
+          c = a.kind.compareTo (b.kind); }
+        if (c == 0) {
+          c = compareStrings (a.property == null ? null : a.property.getShortName (),
+                              b.property == null ? null : b.property.getShortName ()); }
+        if (c == 0) {
+          c = compareStrings (a.detail, b.detail); }
+        return c; }});
+    return l;
+  }
+
+  static int compareStrings (String a, String b) {
+    if (a == null || b == null) {
+      return (a == null ? 0 : 1) - (b == null ? 0 : 1); }
+    return a.compareTo (b);
+  }
+
+  /** One line per problem, for people. */
+  public void summary (PrintStream out) {
+    for (Entry e : sortedEntries ()) {
+      StringBuilder sb = new StringBuilder ("@@@ ");
+      if (e.file != null) {
+        sb.append (e.file).append (": "); }
+      sb.append (e.kind.description);
+      if (e.property != null) {
+        sb.append (" for ").append (e.property.getShortName ()); }
+      if (e.detail != null) {
+        sb.append (": ").append (e.detail); }
+      sb.append (" (").append (e.count).append (e.count == 1 ? " time" : " times");
+      if (e.firstLine != -1) {
+        sb.append (", first at line ").append (e.firstLine); }
+      if (e.firstCp != -1) {
+        sb.append (", first at U+").append (Ucd.toU (e.firstCp)); }
+      sb.append (")");
+      out.println (sb); }
+  }
+
+  /** One tab separated line per problem, after a header line, for
+   *  programs; the fields which do not apply are empty.
+   */
+  public void report (PrintStream out) {
+    out.println ("kind\tfile\tline\tcp\tproperty\tdetail\tcount");
+    for (Entry e : sortedEntries ()) {
+      out.println (e.kind
+                   + "\t" + (e.file == null ? "" : e.file)
+                   + "\t" + (e.firstLine == -1 ? "" : Integer.toString (e.firstLine))
+                   + "\t" + (e.firstCp == -1 ? "" : Ucd.toU (e.firstCp))
+                   + "\t" + (e.property == null ? "" : e.property.getShortName ())
+                   + "\t" + (e.detail == null ? "" : e.detail.replace ('\t', ' '))
+                   + "\t" + e.count); }
+  }
+}
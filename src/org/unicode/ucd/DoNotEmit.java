@@ -39,10 +39,7 @@ import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
-import javax.xml.transform.sax.TransformerHandler;
-
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class DoNotEmit {
   List<Instead> insteads = null;
@@ -68,15 +65,14 @@ public class DoNotEmit {
       add (Instead.fromXML (at)); }
   }
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
+  public void toXML (XMLWriter w, String elt) throws Exception {
     if (insteads.isEmpty ()) {
       return; }
 
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
+    w.startElement (elt); {
       for (Instead instead : insteads) {
-        AttributesImpl at2 = new AttributesImpl ();
-        instead.toXML (ch, "instead", at2); }
-      ch.endElement(Ucd.NAMESPACE, elt, elt); }
+        instead.toXML (w, "instead"); }
+      w.endElement (elt); }
   }
 
   //----------------------------------------------------------------------------
@@ -33,10 +33,8 @@
 
 package org.unicode.ucd;
 
-import javax.xml.transform.sax.TransformerHandler;
 
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class EmojiSource {
   String unicode;
@@ -79,14 +77,13 @@ public class EmojiSource {
     return new EmojiSource (unicode, docomo, kddi, softbank);
   }
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
-    at.addAttribute ("", "unicode", "unicode", "CDATA", unicode);
-    at.addAttribute ("", "docomo", "docomo", "CDATA", docomo);
-    at.addAttribute ("", "kddi", "kddi", "CDATA", kddi);
-    at.addAttribute ("", "softbank", "softbank", "CDATA", softbank);
-
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
-      ch.endElement (Ucd.NAMESPACE, elt, elt); }
+  public void toXML (XMLWriter w, String elt) throws Exception {
+    w.startElement (elt); {
+      w.attribute ("unicode", unicode);
+      w.attribute ("docomo", docomo);
+      w.attribute ("kddi", kddi);
+      w.attribute ("softbank", softbank);
+      w.endElement (elt); }
   }
 
   //----------------------------------------------------------------------------
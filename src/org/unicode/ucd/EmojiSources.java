@@ -39,10 +39,7 @@ import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
-import javax.xml.transform.sax.TransformerHandler;
-
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class EmojiSources {
   // The emoji sources, in the order in which they are added
@@ -71,15 +68,14 @@ public class EmojiSources {
       add (EmojiSource.fromXML (at)); }
   }
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
+  public void toXML (XMLWriter w, String elt) throws Exception {
     if (sources.isEmpty ()) {
       return; }
 
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
+    w.startElement (elt); {
       for (EmojiSource v : sources) {
-        AttributesImpl at2 = new AttributesImpl ();
-        v.toXML (ch, "emoji-source", at2); }
-      ch.endElement(Ucd.NAMESPACE, elt, elt); }
+        v.toXML (w, "emoji-source"); }
+      w.endElement (elt); }
   }
 
   //----------------------------------------------------------------------------
@@ -0,0 +1,183 @@
+// COPYRIGHT AND PERMISSION NOTICE
+//
+// Copyright 2006-2016 Unicode Inc.
+//
+// All rights reserved.
+//
+// Permission is hereby granted, free of charge, to any person
+// obtaining a copy of this software and associated documentation
+// files (the "Software"), to deal in the Software without
+// restriction, including without limitation the rights to use, copy,
+// modify, merge, publish, distribute, and/or sell copies of the
+// Software, and to permit persons to whom the Software is furnished
+// to do so, provided that the above copyright notice(s) and this
+// permission notice appear in all copies of the Software and that
+// both the above copyright notice(s) and this permission notice
+// appear in supporting documentation.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT OF THIRD PARTY RIGHTS. IN NO EVENT SHALL THE
+// COPYRIGHT HOLDER OR HOLDERS INCLUDED IN THIS NOTICE BE LIABLE FOR
+// ANY CLAIM, OR ANY SPECIAL INDIRECT OR CONSEQUENTIAL DAMAGES, OR ANY
+// DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS,
+// WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS
+// ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE
+// OF THIS SOFTWARE.
+//
+// Except as contained in this notice, the name of a copyright holder
+// shall not be used in advertising or otherwise to promote the sale,
+// use or other dealings in this Software without prior written
+// authorization of the copyright holder.
+
+package org.unicode.ucd;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** An immutable snapshot of a repertoire, built by Repertoire.freeze.
+ *  Code points are mapped to groups by a two-stage trie: the high
+ *  bits of a code point select a block, and the low bits an entry in
+ *  that block. The entry is the index of the group, relative to the
+ *  index of the group of the first code point of the block. Blocks
+ *  with the same entries, such as those in a long range or in a run
+ *  of single code point groups, are stored once.
+ *  Nothing changes after construction, so a frozen repertoire can be
+ *  read from several threads without locking.
+ */
+
+public class FrozenRepertoire extends Repertoire {
+
+  static final int SHIFT = 6;
+  static final int BLOCK_SIZE = 1 << SHIFT;
+  static final int NB_BLOCKS = 0x110000 >> SHIFT;
+
+  // The groups, in code point order.
+  protected final Group[] table;
+
+  // Indexed by block; the index in 'table' of the group of the first
+  // code point of the block, and the offset of the block in 'data'.
+  protected final int[] base;
+  protected final int[] index;
+
+  protected final byte[] data;
+
+  public FrozenRepertoire (Repertoire source) {
+    super (false);
+    normalizeTime = source.normalizeTime;
+    valuePool = source.valuePool;
+    defaultsStored = source.defaultsStored;
+    defaultPasses = source.defaultPasses;
+
+    List<Group> t = new ArrayList<Group> ();
+    for (Group r : source) {
+      t.add (new Group (r.firstCp, r.lastCp, r)); }
+    table = t.toArray (new Group [t.size ()]);
+
+    base = new int [NB_BLOCKS];
+    index = new int [NB_BLOCKS];
+    ByteBuffer d = ByteBuffer.allocate (0x110000);
+    Map<ByteBuffer, Integer> blocks = new HashMap<ByteBuffer, Integer> ();
+
+    int g = 0;
+    for (int b = 0; b < NB_BLOCKS; b++) {
+      int firstCp = b << SHIFT;
+      while (table [g].lastCp < firstCp) {
+        g++; }
+      base [b] = g;
+
+      byte[] block = new byte [BLOCK_SIZE];
+      int h = g;
+      for (int i = 0; i < BLOCK_SIZE; i++) {
+        while (table [h].lastCp < firstCp + i) {
+          h++; }
+        block [i] = (byte) (h - g); }
+
+      ByteBuffer key = ByteBuffer.wrap (block);
+      Integer offset = blocks.get (key);
+      if (offset == null) {
+        offset = d.position ();
+        d.put (block);
+        blocks.put (key, offset); }
+      index [b] = offset; }
+
+    data = new byte [d.position ()];
+    d.flip ();
+    d.get (data);
+  }
+
+  // A mutable copy of this repertoire.
+  public Repertoire thaw () {
+    Repertoire r = Repertoire.create ();
+    for (Group g : table) {
+      r.setGroup (new Group (g.firstCp, g.lastCp, g)); }
+    return r;
+  }
+
+  public FrozenRepertoire freeze () {
+    return this;
+  }
+
+  //----------------------------------------------------------------------------
+  protected Group groupAt (int cp) {
+    int b = cp >> SHIFT;
+    return table [base [b] + data [index [b] + (cp & (BLOCK_SIZE - 1))]];
+  }
+
+  @Override
+  protected void setGroup (Group r) {
+    throw new UnsupportedOperationException ("frozen repertoire");
+  }
+
+  @Override
+  protected void extendGroup (Group r, int oldLastCp) {
+    throw new UnsupportedOperationException ("frozen repertoire");
+  }
+
+  @Override
+  public void createBoundaryBefore (int cp) {
+    throw new UnsupportedOperationException ("frozen repertoire");
+  }
+
+  @Override
+  public void putDefault (Property p, String v) {
+    throw new UnsupportedOperationException ("frozen repertoire");
+  }
+
+  @Override
+  public void putDefault (int firstCp, int lastCp, Property p, String v) {
+    throw new UnsupportedOperationException ("frozen repertoire");
+  }
+
+  @Override
+  public void putDefaults (Map<Property, String> defaults) {
+    throw new UnsupportedOperationException ("frozen repertoire");
+  }
+
+  @Override
+  public void putDefault (DefaultSetter s, Property... ps) {
+    throw new UnsupportedOperationException ("frozen repertoire");
+  }
+
+  @Override
+  public void normalize () {
+    throw new UnsupportedOperationException ("frozen repertoire");
+  }
+
+  @Override
+  public void remove (Property p) {
+    throw new UnsupportedOperationException ("frozen repertoire");
+  }
+
+  //----------------------------------------------------------------------------
+  public void internalStats (PrintStream out) {
+    super.internalStats (out);
+    out.println ("     " + (4 * (base.length + index.length + table.length) + data.length)
+                 + " bytes in the code point trie");
+  }
+}
@@ -33,20 +33,50 @@
 
 package org.unicode.ucd;
 
-import java.util.IdentityHashMap;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import javax.xml.transform.sax.TransformerHandler;
-
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class Group {
   public int firstCp;
   public int lastCp;
-  protected Map<Property, Object> properties;
 
+  // The values of the properties, indexed by Property.getOrdinal. The
+  // array grows when a property beyond its end is set. A property can
+  // be set to null, which is not the same as not being set; NULL
+  // stands for that value in the array.
+  // When a group is split, the two halves share the same array, and
+  // each copies it the first time it modifies it.
+  protected Object[] values;
+  protected int nbValues;
+  protected boolean sharedValues;
+
+  // The xor of slotHash over all the values; maintained by set and
+  // remove. Groups with different fingerprints cannot have the same
+  // properties.
+  protected long fingerprint;
+
+  // The values of the binary properties, indexed by
+  // Property.getBinaryIndex. The first half of 'bits' tells if the
+  // property has a value, and the second half if it is "Y". Values
+  // other than "Y" and "N" go in 'values'. Shared like 'values'.
+  protected long[] bits;
+  protected boolean sharedBits;
+
+  static final Object[] NO_VALUES = new Object [0];
+  static final long[] NO_BITS = new long [0];
+  static final Object NULL = new Object ();
+
+  static long slotHash (int i, Object v) {
+    long h = (i + 1) * 0x9e3779b97f4a7c15L ^ System.identityHashCode (v);
+    h *= 0xff51afd7ed558ccdL;
+    return h ^ (h >>> 33);
+  }
 
 
   public Group (int firstCp, int lastCp) {
@@ -56,10 +86,19 @@ public class Group {
   public Group (int firstCp, int lastCp, Group rCopy) {
     this.firstCp = firstCp;
     this.lastCp = lastCp;
-    this.properties = new IdentityHashMap<Property, Object> ();
     if (rCopy != null) {
-      for (Property p : rCopy.properties.keySet ()) {
-        putObjectForced (p, rCopy.getObject (p)); }}
+      this.values = rCopy.values;
+      this.nbValues = rCopy.nbValues;
+      this.fingerprint = rCopy.fingerprint;
+      this.sharedValues = true;
+      rCopy.sharedValues = true;
+      this.bits = rCopy.bits;
+      this.sharedBits = true;
+      rCopy.sharedBits = true; }
+    else {
+      this.values = NO_VALUES;
+      this.nbValues = 0;
+      this.bits = NO_BITS; }
   }
 
   public String toString () {
@@ -71,62 +110,221 @@ public class Group {
   }
 
   //----------------------------------------------------------------------------
+  // Values are compared by identity, not with equals.
   public boolean sameProperties (Group otherRange) {
-    return this.properties.equals (otherRange.properties);
+    if (this.nbValues != otherRange.nbValues
+        || this.fingerprint != otherRange.fingerprint
+        || ! Arrays.equals (this.bits, otherRange.bits)) {
+      return false; }
+
+    Object[] these = this.values;
+    Object[] others = otherRange.values;
+    int common = Math.min (these.length, others.length);
+
+    for (int i = 0; i < common; i++) {
+      if (these [i] != others [i]) {
+        return false; }}
+    for (int i = common; i < these.length; i++) {
+      if (these [i] != null) {
+        return false; }}
+    for (int i = common; i < others.length; i++) {
+      if (others [i] != null) {
+        return false; }}
+    return true;
   }
 
+  // Values which are not strings, such as CodePoints, are returned in
+  // their string form.
   public String get (Property p) {
-    return (String) properties.get (p);
+    Object v = getObject (p);
+    return v == null ? null : v.toString ();
   }
 
   public Object getObject (Property p) {
-    return properties.get (p);
+    if (p.isBinary ()) {
+      int b = p.getBinaryIndex ();
+      int w = b >>> 6;
+      if (w < bits.length / 2 && (bits [w] & (1L << b)) != 0) {
+        return (bits [bits.length / 2 + w] & (1L << b)) != 0 ? "Y" : "N"; }}
+
+    int i = p.getOrdinal ();
+    if (i >= values.length) {
+      return null; }
+    Object v = values [i];
+    return v == NULL ? null : v;
+  }
+
+  private void set (Property p, Object v) {
+    if (p.isBinary ()) {
+      if ("Y".equals (v) || "N".equals (v)) {
+        removeSlot (p);
+        setBit (p, "Y".equals (v));
+        return; }
+      removeBit (p); }
+
+    int i = p.getOrdinal ();
+    Object stored = (v == null ? NULL : v);
+    if (i >= values.length) {
+      values = Arrays.copyOf (values, Math.max (i + 1, Property.count ()));
+      sharedValues = false; }
+    else if (values [i] == stored) {
+      return; }
+    else if (sharedValues) {
+      values = values.clone ();
+      sharedValues = false; }
+    if (values [i] == null) {
+      nbValues++; }
+    else {
+      fingerprint ^= slotHash (i, values [i]); }
+    fingerprint ^= slotHash (i, stored);
+    values [i] = stored;
   }
 
   public void put (Property p, String v) {
-    String currentValue = get (p);
-    if (currentValue != null && ! v.equals (currentValue) ) {
+    putObject (p, CodePoints.valueOf (p, v));
+  }
+
+  public void putObject (Property p, Object v) {
+    Object currentValue = tryPutObject (p, v);
+    if (currentValue != null) {
       System.err.println ("@@@ Attempt to reset " + p.getShortName () + " from " + currentValue
                                + " to " + v + " on " + this + " (ignored)"); }
-    else {
-      properties.put (p, v); }
   }
 
-  public void putObject (Property p, Object v) {
+  // As putObject, but rather than complaining when p already has a
+  // different value, return that value; return null otherwise.
+  public Object tryPutObject (Property p, Object v) {
     Object currentValue = getObject (p);
     if (currentValue != null && ! v.equals (currentValue) ) {
-      System.err.println ("@@@ Attempt to reset " + p.getShortName () + " from " + currentValue
-                               + " to " + v + " on " + this + " (ignored)"); }
-    else {
-      properties.put (p, v); }
+      return currentValue; }
+    set (p, v);
+    return null;
   }
 
 
   public void putForced (Property p, String v) {
-    properties.put (p, v);
+    set (p, CodePoints.valueOf (p, v));
   }
 
   public void putObjectForced (Property p, Object v) {
-    properties.put (p, v);
+    set (p, v);
   }
 
   public void putDefault (Property p, String v) {
-    String currentValue = get (p);
-    if (currentValue == null) {
-      properties.put (p, v); }
+    putDefaultObject (p, CodePoints.valueOf (p, v));
+  }
+
+  public void putDefaultObject (Property p, Object v) {
+    if (getObject (p) == null) {
+      set (p, v); }
+  }
+
+  private void setBit (Property p, boolean yes) {
+    int b = p.getBinaryIndex ();
+    int w = b >>> 6;
+    long m = 1L << b;
+    if (bits.length == 0) {
+      bits = new long [2 * ((Property.binaryCount () + 63) / 64)];
+      sharedBits = false; }
+    int y = bits.length / 2 + w;
+    boolean present = (bits [w] & m) != 0;
+    if (present && ((bits [y] & m) != 0) == yes) {
+      return; }
+    if (sharedBits) {
+      bits = bits.clone ();
+      sharedBits = false; }
+    if (! present) {
+      bits [w] |= m;
+      nbValues++; }
+    if (yes) {
+      bits [y] |= m; }
+    else {
+      bits [y] &= ~m; }
+  }
+
+  private void removeBit (Property p) {
+    int b = p.getBinaryIndex ();
+    int w = b >>> 6;
+    long m = 1L << b;
+    if (w < bits.length / 2 && (bits [w] & m) != 0) {
+      if (sharedBits) {
+        bits = bits.clone ();
+        sharedBits = false; }
+      bits [w] &= ~m;
+      bits [bits.length / 2 + w] &= ~m;
+      nbValues--;
+      // Without bits, go back to NO_BITS, so that sameProperties and
+      // shareValues see the same array as for a group never given any.
+      for (int i = 0; i < bits.length / 2; i++) {
+        if (bits [i] != 0) {
+          return; }}
+      bits = NO_BITS;
+      sharedBits = false; }
   }
 
   public void remove (Property p) {
-    properties.remove (p);
+    if (p.isBinary ()) {
+      removeBit (p); }
+    removeSlot (p);
+  }
+
+  private void removeSlot (Property p) {
+    int i = p.getOrdinal ();
+    if (i < values.length && values [i] != null) {
+      if (sharedValues) {
+        values = values.clone ();
+        sharedValues = false; }
+      fingerprint ^= slotHash (i, values [i]);
+      values [i] = null;
+      nbValues--; }
+  }
+
+  // Replace each value by its canonical instance from 'pool'. As the
+  // replacements are equal to the values they replace, this is done in
+  // place even if the array is shared with other groups.
+  public void internValues (ValuePool pool) {
+    fingerprint = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (values [i] != null && values [i] != NULL) {
+        values [i] = pool.intern (Property.fromOrdinal (i), values [i]); }
+      if (values [i] != null) {
+        fingerprint ^= slotHash (i, values [i]); }}
+  }
+
+  // If a group with equal values is already in 'pool', share its
+  // arrays; otherwise add this group to the pool. Groups with name
+  // aliases are left alone, since the sets of aliases are mutable.
+  public void shareValues (Map<List<Object>, Group> pool) {
+    if (getObject (Property.nameAlias) != null) {
+      return; }
+
+    List<Object> key = new ArrayList<Object> (Arrays.asList (values));
+    key.add (LongBuffer.wrap (bits));
+    Group shared = pool.get (key);
+    if (shared == null) {
+      pool.put (key, this); }
+    else {
+      values = shared.values;
+      fingerprint = shared.fingerprint;
+      bits = shared.bits; }
+    sharedValues = true;
+    sharedBits = true;
   }
 
   public void collectProperties (Set<Property> ps) {
-    ps.addAll (properties.keySet ());
+    for (int i = 0; i < values.length; i++) {
+      if (values [i] != null) {
+        ps.add (Property.fromOrdinal (i)); }}
+    for (int w = 0; w < bits.length / 2; w++) {
+      long present = bits [w];
+      while (present != 0) {
+        ps.add (Property.fromBinaryIndex (64 * w + Long.numberOfTrailingZeros (present)));
+        present &= present - 1; }}
   }
 
   //----------------------------------------------------------------------------
 
-  static public Group fromXML (String elt, Attributes at, Map<Property, String>gr) {
+  static public Group fromXML (String elt, Attributes at, Map<Property, Object>gr) {
     int firstCp, lastCp;
     if (at.getValue ("cp") != null) {
       firstCp = Integer.parseInt (at.getValue ("cp"), 16);
@@ -141,40 +339,72 @@ public class Group {
       String s = at.getLocalName (i);
       if (! ("cp".equals (s) || "first-cp".equals (s) || "last-cp".equals (s))) {
         Property p = Property.fromString (s);
-        r.put (p, at.getValue (i).intern()); }}
+        if (p.isCodePoints ()) {
+          r.putObject (p, CodePoints.intern (p, at.getValue (i))); }
+        else {
+          r.put (p, at.getValue (i).intern()); }}}
 
     if (! "code-point".equals (elt)) {
       r.put (Property.type, elt); }
 
     if (gr != null) {
       for (Property p : gr.keySet ()) {
-        r.putDefault (p, gr.get (p)); }}
+        r.putDefaultObject (p, gr.get (p)); }}
 
     return r;
   }
 
-  public void toXMLAttributes (AttributesImpl at) {
-    for (Property p : Property.values ()) {
-      String v = get (p);
-      if (Property.type != p && Property.nameAlias != p && v != null) {
-        at.addAttribute ("", p.getShortName (), p.getShortName (), "CDATA", v); }}
+  // The values of the properties written as attributes, in their
+  // string form and indexed by ordinal (which is also the order of
+  // Property.values ()). The type and the name aliases are not
+  // attributes.
+  String[] attributeValues () {
+    String[] r = new String [Property.count ()];
+    for (int i = 0; i < values.length; i++) {
+      Object v = values [i];
+      if (v != null && v != NULL) {
+        r [i] = v.toString (); }}
+    int half = bits.length / 2;
+    for (int w = 0; w < half; w++) {
+      long present = bits [w];
+      while (present != 0) {
+        int b = Long.numberOfTrailingZeros (present);
+        Property p = Property.fromBinaryIndex (64 * w + b);
+        r [p.getOrdinal ()] = (bits [half + w] & (1L << b)) != 0 ? "Y" : "N";
+        present &= present - 1; }}
+    r [Property.type.getOrdinal ()] = null;
+    r [Property.nameAlias.getOrdinal ()] = null;
+    return r;
+  }
+
+  public void toXMLAttributes (XMLWriter w) throws Exception {
+    String[] v = attributeValues ();
+    for (int i = 0; i < v.length; i++) {
+      if (v [i] != null) {
+        w.attribute (Property.fromOrdinal (i), v [i]); }}
   }
 
-  public void toXMLAttributes2 (TransformerHandler ch)  throws Exception {
+  public void toXMLAttributes2 (XMLWriter w)  throws Exception {
     Set<NameAlias> v = (Set<NameAlias>) getObject (Property.nameAlias);
     if (v == null) {
       return; }
     for (NameAlias na : v) {
-      na.toXML (ch, "name-alias", new AttributesImpl ()); }
+      na.toXML (w, "name-alias"); }
   }
 
-  public void toXMLElements (TransformerHandler ch, int explodeLimit,
+  public void toXMLElements (XMLWriter w, int explodeLimit,
                              Group containingGroup) throws Exception {
+    toXMLElements (w, explodeLimit, containingGroup,
+                   containingGroup == null ? null : containingGroup.attributeValues ());
+  }
+
+  // containingValues is containingGroup.attributeValues (), which the
+  // caller computes once for all the groups it contains.
+  public void toXMLElements (XMLWriter w, int explodeLimit,
+                             Group containingGroup, String[] containingValues) throws Exception {
     if (nbProps () == 0) {
       return; }
 
-    AttributesImpl at = new AttributesImpl ();
-
     int first, last;
 
     if (containingGroup == null) {
@@ -186,22 +416,21 @@ public class Group {
 
     boolean explode = (last == first) || (last - first - 1 < explodeLimit);
 
-    if (explode) {
-      at.addAttribute ("", "cp", "cp", "CDATA", Ucd.toU (first)); }
-    else {
-      at.addAttribute ("", "first-cp", "first-cp", "CDATA", Ucd.toU (first));
-      at.addAttribute ("", "last-cp", "last-cp", "CDATA", Ucd.toU (last)); }
-
-    for (Property p : Property.values ()) {
-      if (p == Property.nameAlias) {
-        continue; }
-
-      String v = get (p);
-      if (   Property.type == p
-          || v == null
-          || containingGroup != null && v.equals (containingGroup.get (p))) {
+    // The properties and values are the same for all the elements
+    // written from this group; collect them once.
+    String[] all = attributeValues ();
+    Property[] props = new Property [nbValues];
+    String[] attributeValues = new String [nbValues];
+    int nbAttributes = 0;
+
+    for (int i = 0; i < all.length; i++) {
+      String v = all [i];
+      if (   v == null
+          || containingValues != null && v.equals (containingValues [i])) {
         continue; }
-      at.addAttribute ("", p.getShortName (), p.getShortName (), "CDATA", v); }
+      props [nbAttributes] = Property.fromOrdinal (i);
+      attributeValues [nbAttributes] = v;
+      nbAttributes++; }
 
     String type = get (Property.type);
     if (type == null) {
@@ -209,18 +438,24 @@ public class Group {
 
     if (explode) {
       for (int cp = first; cp <= last; cp++) {
-        at.setValue (0, Ucd.toU (cp));
-        ch.startElement (Ucd.NAMESPACE, type, type, at); {
-          toXMLAttributes2 (ch);
-          ch.endElement (Ucd.NAMESPACE, type, type); }}}
+        w.startElement (type); {
+          w.codePointAttribute ("cp", cp);
+          for (int i = 0; i < nbAttributes; i++) {
+            w.attribute (props [i], attributeValues [i]); }
+          toXMLAttributes2 (w);
+          w.endElement (type); }}}
     else {
-      ch.startElement (Ucd.NAMESPACE, type, type, at); {
-        toXMLAttributes2 (ch);
-        ch.endElement (Ucd.NAMESPACE, type, type); }}
+      w.startElement (type); {
+        w.codePointAttribute ("first-cp", first);
+        w.codePointAttribute ("last-cp", last);
+        for (int i = 0; i < nbAttributes; i++) {
+          w.attribute (props [i], attributeValues [i]); }
+        toXMLAttributes2 (w);
+        w.endElement (type); }}
   }
 
   //----------------------------------------------------------------------------
   public int nbProps () {
-    return properties.size();
+    return nbValues;
   }
 }
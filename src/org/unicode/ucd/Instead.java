@@ -33,10 +33,8 @@
 
 package org.unicode.ucd;
 
-import javax.xml.transform.sax.TransformerHandler;
 
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class Instead {
   String of;
@@ -76,13 +74,12 @@ public class Instead {
     return new Instead (of, use, because);
   }
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
-    at.addAttribute ("", "of", "of", "CDATA", of);
-    at.addAttribute ("", "use", "use", "CDATA", use);
-    at.addAttribute ("", "because", "because", "CDATA", because);
-
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
-      ch.endElement (Ucd.NAMESPACE, elt, elt); }
+  public void toXML (XMLWriter w, String elt) throws Exception {
+    w.startElement (elt); {
+      w.attribute ("of", of);
+      w.attribute ("use", use);
+      w.attribute ("because", because);
+      w.endElement (elt); }
   }
 
   //----------------------------------------------------------------------------
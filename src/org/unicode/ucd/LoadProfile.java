@@ -0,0 +1,235 @@
+// COPYRIGHT AND PERMISSION NOTICE
+//
+// Copyright 2006-2016 Unicode Inc.
+//
+// All rights reserved.
+//
+// Permission is hereby granted, free of charge, to any person
+// obtaining a copy of this software and associated documentation
+// files (the "Software"), to deal in the Software without
+// restriction, including without limitation the rights to use, copy,
+// modify, merge, publish, distribute, and/or sell copies of the
+// Software, and to permit persons to whom the Software is furnished
+// to do so, provided that the above copyright notice(s) and this
+// permission notice appear in all copies of the Software and that
+// both the above copyright notice(s) and this permission notice
+// appear in supporting documentation.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT OF THIRD PARTY RIGHTS. IN NO EVENT SHALL THE
+// COPYRIGHT HOLDER OR HOLDERS INCLUDED IN THIS NOTICE BE LIABLE FOR
+// ANY CLAIM, OR ANY SPECIAL INDIRECT OR CONSEQUENTIAL DAMAGES, OR ANY
+// DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS,
+// WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS
+// ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE
+// OF THIS SOFTWARE.
+//
+// Except as contained in this notice, the name of a copyright holder
+// shall not be used in advertising or otherwise to promote the sale,
+// use or other dealings in this Software without prior written
+// authorization of the copyright holder.
+
+
+package org.unicode.ucd;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Where the work goes when loading a UCD. For each step of fromUCD
+ *  (one UCD file, or set of files for Unihan), the bytes read, the
+ *  lines and records parsed, the ranges put in the repertoire and the
+ *  group boundaries this created, the time, and the memory allocated.
+ *
+ *  The parsing is attributed to the step of the current thread, set by
+ *  begin; the puts and boundaries are counted on the repertoire given
+ *  to begin, which is null while the changes are only staged.
+ */
+public class LoadProfile {
+
+  public static final class Step {
+    public final String file;
+    long bytes;
+    long lines;
+    long records;
+    long puts;
+    long boundaries;
+    long nanos;
+    long allocated;
+
+    Step (String file) {
+      this.file = file;
+    }
+
+    synchronized void add (long bytes, long lines, long records) {
+      this.bytes += bytes;
+      this.lines += lines;
+      this.records += records;
+    }
+
+    synchronized void add (long puts, long boundaries, long nanos, long allocated) {
+      this.puts += puts;
+      this.boundaries += boundaries;
+      this.nanos += nanos;
+      this.allocated += allocated;
+    }
+  }
+
+  /** The work of a thread for a step, from begin to end. */
+  public static final class Span {
+    final Step step;
+    final Step previous;
+    final Repertoire repertoire;
+    final boolean timed;
+    final long startNanos;
+    final long startAllocated;
+    final long startPuts;
+    final long startBoundaries;
+
+    Span (Step step, Step previous, Repertoire repertoire, boolean timed) {
+      this.step = step;
+      this.previous = previous;
+      this.repertoire = repertoire;
+      this.timed = timed;
+      startNanos = System.nanoTime ();
+      startAllocated = allocatedBytes ();
+      startPuts = repertoire == null ? 0 : repertoire.puts;
+      startBoundaries = repertoire == null ? 0 : repertoire.boundaries;
+    }
+
+    public void end () {
+      if (step != null && step != previous) {
+        step.add (repertoire == null ? 0 : repertoire.puts - startPuts,
+                  repertoire == null ? 0 : repertoire.boundaries - startBoundaries,
+                  timed ? System.nanoTime () - startNanos : 0,
+                  allocatedBytes () - startAllocated); }
+      current.set (previous);
+    }
+  }
+
+  private static final ThreadLocal<Step> current = new ThreadLocal<Step> ();
+
+  /** Attributes the work of this thread to 'step' until the span ends.
+   *  If the thread already works for 'step', nothing more is counted.
+   */
+  public static Span begin (Step step, Repertoire repertoire) {
+    Span span = new Span (step, current.get (), repertoire, true);
+    current.set (step);
+    return span;
+  }
+
+  /** As begin, for a thread which parses on behalf of another one; its
+   *  time is not counted, since the other thread waits for it.
+   */
+  public static Span beginHelper (Step step) {
+    Span span = new Span (step, current.get (), null, false);
+    current.set (step);
+    return span;
+  }
+
+  public static Step current () {
+    return current.get ();
+  }
+
+  // Called by the parser.
+  static void read (long bytes) {
+    Step step = current.get ();
+    if (step != null) {
+      step.add (bytes, 0, 0); }
+  }
+
+  static void parsed (long lines, long records) {
+    Step step = current.get ();
+    if (step != null) {
+      step.add (0, lines, records); }
+  }
+
+  private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean ();
+
+  // The bytes allocated so far by this thread, or 0 if the JVM cannot
+  // tell.
+  static long allocatedBytes () {
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean t = (com.sun.management.ThreadMXBean) threads;
+      if (t.isThreadAllocatedMemorySupported () && t.isThreadAllocatedMemoryEnabled ()) {
+        return t.getThreadAllocatedBytes (Thread.currentThread ().getId ()); }}
+    return 0;
+  }
+
+  //----------------------------------------------------------------------------
+
+  public final String description;
+  public final List<Step> steps = new ArrayList<Step> ();
+
+  public LoadProfile (String description) {
+    this.description = description;
+  }
+
+  public Step add (String file) {
+    Step step = new Step (file);
+    steps.add (step);
+    return step;
+  }
+
+  Step total () {
+    Step total = new Step ("total");
+    for (Step s : steps) {
+      total.add (s.bytes, s.lines, s.records);
+      total.add (s.puts, s.boundaries, s.nanos, s.allocated); }
+    return total;
+  }
+
+  public void print (PrintStream out) {
+    out.println ("Load profile for " + description);
+    out.println (String.format ("  %-28s %10s %8s %8s %8s %10s %9s %10s",
+                                "file", "bytes", "lines", "records", "puts", "boundaries", "ms", "alloc Kb"));
+    for (Step s : steps) {
+      print (out, s); }
+    print (out, total ());
+  }
+
+  private void print (PrintStream out, Step s) {
+    out.println (String.format ("  %-28s %10d %8d %8d %8d %10d %9.1f %10d",
+                                s.file, s.bytes, s.lines, s.records, s.puts, s.boundaries,
+                                s.nanos / 1e6, s.allocated / 1024));
+  }
+
+  public void toJSON (PrintStream out) {
+    out.println ("{");
+    out.println ("  \"description\": " + quote (description) + ",");
+    out.println ("  \"steps\": [");
+    for (int i = 0; i < steps.size (); i++) {
+      out.println ("    " + toJSON (steps.get (i)) + (i + 1 < steps.size () ? "," : "")); }
+    out.println ("  ],");
+    out.println ("  \"total\": " + toJSON (total ()));
+    out.println ("}");
+  }
+
+  private static String toJSON (Step s) {
+    return "{\"file\": " + quote (s.file)
+      + ", \"bytes\": " + s.bytes
+      + ", \"lines\": " + s.lines
+      + ", \"records\": " + s.records
+      + ", \"puts\": " + s.puts
+      + ", \"boundaries\": " + s.boundaries
+      + ", \"nanos\": " + s.nanos
+      + ", \"allocatedBytes\": " + s.allocated + "}";
+  }
+
+  private static String quote (String s) {
+    StringBuilder sb = new StringBuilder ("\"");
+    for (int i = 0; i < s.length (); i++) {
+      char c = s.charAt (i);
+      if (c == '"' || c == '\\') {
+        sb.append ('\\').append (c); }
+      else if (c < 0x20) {
+        sb.append (String.format ("\\u%04x", (int) c)); }
+      else {
+        sb.append (c); }}
+    return sb.append ('"').toString ();
+  }
+}
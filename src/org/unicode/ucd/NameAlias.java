@@ -33,10 +33,7 @@
 
 package org.unicode.ucd;
 
-import javax.xml.transform.sax.TransformerHandler;
-
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class NameAlias implements Comparable {
   String alias;
@@ -88,13 +85,12 @@ public class NameAlias implements Comparable {
     return new NameAlias (alias, type);
   }
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
-    at.addAttribute ("", "alias", "alias", "CDATA", alias);
-    if (type != null) {
-      at.addAttribute ("", "type", "type", "CDATA", type); }
-
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
-      ch.endElement (Ucd.NAMESPACE, elt, elt); }
+  public void toXML (XMLWriter w, String elt) throws Exception {
+    w.startElement (elt); {
+      w.attribute ("alias", alias);
+      if (type != null) {
+        w.attribute ("type", type); }
+      w.endElement (elt); }
   }
 
   //----------------------------------------------------------------------------
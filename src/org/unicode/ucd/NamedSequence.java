@@ -33,10 +33,8 @@
 
 package org.unicode.ucd;
 
-import javax.xml.transform.sax.TransformerHandler;
 
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class NamedSequence {
   String name;
@@ -73,12 +71,11 @@ public class NamedSequence {
     return new NamedSequence (name, sequence);
   }
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
-    at.addAttribute ("", "name", "name", "CDATA", name);
-    at.addAttribute ("", "cps", "cps", "CDATA", sequence);
-
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
-      ch.endElement (Ucd.NAMESPACE, elt, elt); }
+  public void toXML (XMLWriter w, String elt) throws Exception {
+    w.startElement (elt); {
+      w.attribute ("name", name);
+      w.attribute ("cps", sequence);
+      w.endElement (elt); }
   }
 
   //----------------------------------------------------------------------------
@@ -37,10 +37,7 @@ import java.io.PrintStream;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
-import javax.xml.transform.sax.TransformerHandler;
-
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class NamedSequences {
   SortedMap<String, NamedSequence> sequences = null;
@@ -67,15 +64,14 @@ public class NamedSequences {
       add (NamedSequence.fromXML (at)); }
   }
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
+  public void toXML (XMLWriter w, String elt) throws Exception {
     if (sequences.isEmpty ()) {
       return; }
 
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
+    w.startElement (elt); {
       for (NamedSequence ns : sequences.values ()) {
-        AttributesImpl at2 = new AttributesImpl ();
-        ns.toXML (ch, "named-sequence", at2); }
-      ch.endElement(Ucd.NAMESPACE, elt, elt); }
+        ns.toXML (w, "named-sequence"); }
+      w.endElement (elt); }
   }
 
   //----------------------------------------------------------------------------
@@ -35,10 +35,7 @@ package org.unicode.ucd;
 
 import java.io.Serializable;
 
-import javax.xml.transform.sax.TransformerHandler;
-
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class NormalizationCorrection implements Serializable {
   static final long serialVersionUID = 1;
@@ -86,14 +83,13 @@ public class NormalizationCorrection implements Serializable {
     return new NormalizationCorrection (cp, oldDecomp, newDecomp, version);
   }
   
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
-    at.addAttribute ("", "cp", "cp", "CDATA", cp);
-    at.addAttribute ("", "old", "old", "CDATA", oldDecomp);
-    at.addAttribute ("", "new", "new", "CDATA", newDecomp);
-    at.addAttribute ("", "version", "version", "CDATA", version);
-
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
-      ch.endElement (Ucd.NAMESPACE, elt, elt); }
+  public void toXML (XMLWriter w, String elt) throws Exception {
+    w.startElement (elt); {
+      w.attribute ("cp", cp);
+      w.attribute ("old", oldDecomp);
+      w.attribute ("new", newDecomp);
+      w.attribute ("version", version);
+      w.endElement (elt); }
   }
   
 
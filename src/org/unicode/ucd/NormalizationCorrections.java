@@ -37,10 +37,7 @@ import java.io.PrintStream;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
-import javax.xml.transform.sax.TransformerHandler;
-
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class NormalizationCorrections {
   // TODO: in principle, we could have the same code point corrected
@@ -77,15 +74,14 @@ public class NormalizationCorrections {
       add (NormalizationCorrection.fromXML (at)); }
   }
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
+  public void toXML (XMLWriter w, String elt) throws Exception {
     if (corrections.isEmpty ()) {
       return; }
 
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
+    w.startElement (elt); {
       for (NormalizationCorrection c : corrections.values ()) {
-        AttributesImpl at2 = new AttributesImpl ();
-        c.toXML (ch, "normalization-correction", at2); }
-      ch.endElement(Ucd.NAMESPACE, elt, elt); }
+        c.toXML (w, "normalization-correction"); }
+      w.endElement (elt); }
   }
 
   //----------------------------------------------------------------------------
@@ -0,0 +1,324 @@
+// COPYRIGHT AND PERMISSION NOTICE
+//
+// Copyright 2006-2016 Unicode Inc.
+//
+// All rights reserved.
+//
+// Permission is hereby granted, free of charge, to any person
+// obtaining a copy of this software and associated documentation
+// files (the "Software"), to deal in the Software without
+// restriction, including without limitation the rights to use, copy,
+// modify, merge, publish, distribute, and/or sell copies of the
+// Software, and to permit persons to whom the Software is furnished
+// to do so, provided that the above copyright notice(s) and this
+// permission notice appear in all copies of the Software and that
+// both the above copyright notice(s) and this permission notice
+// appear in supporting documentation.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT OF THIRD PARTY RIGHTS. IN NO EVENT SHALL THE
+// COPYRIGHT HOLDER OR HOLDERS INCLUDED IN THIS NOTICE BE LIABLE FOR
+// ANY CLAIM, OR ANY SPECIAL INDIRECT OR CONSEQUENTIAL DAMAGES, OR ANY
+// DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS,
+// WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS
+// ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE
+// OF THIS SOFTWARE.
+//
+// Except as contained in this notice, the name of a copyright holder
+// shall not be used in advertising or otherwise to promote the sale,
+// use or other dealings in this Software without prior written
+// authorization of the copyright holder.
+
+
+package org.unicode.ucd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/** A deflate stream compressed on several threads, as pigz does.
+ *
+ *  The data is cut in blocks, each compressed on its own by a pool of
+ *  threads, with the end of the previous block as the dictionary; each
+ *  block but the last ends with a sync flush, so that the compressed
+ *  blocks put end to end form a single deflate stream. The writer only
+ *  copies the data in the blocks and computes the CRC; it waits for the
+ *  compression only when too many blocks are pending.
+ *
+ *  gzip and zip give the stream wrapped in those formats. If the data
+ *  cannot be written completely, abort stops the compression without
+ *  writing the end of the stream.
+ */
+public class ParallelDeflater extends OutputStream {
+
+  static final int BLOCK_SIZE = 128 * 1024;
+  static final int DICTIONARY_SIZE = 32 * 1024;
+
+  protected final OutputStream out;
+  private final int level;
+  private final ExecutorService pool;
+  private final int maxPending;
+  private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>> ();
+
+  // The deflaters not in use, reset; there are at most as many as
+  // threads.
+  private final ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<Deflater> ();
+
+  // All the deflaters created, in use or not, to end them.
+  private final ConcurrentLinkedQueue<Deflater> allDeflaters = new ConcurrentLinkedQueue<Deflater> ();
+
+  private byte[] block = new byte [BLOCK_SIZE];
+  private int length = 0;
+  private byte[] previousBlock = null;
+  private boolean finished = false;
+
+  protected final CRC32 crc = new CRC32 ();
+  protected long uncompressedSize = 0;
+  protected long compressedSize = 0;
+
+  public ParallelDeflater (OutputStream out, int level, int nbThreads) {
+    this.out = out;
+    this.level = level;
+    this.pool = Executors.newFixedThreadPool (nbThreads);
+    this.maxPending = 2 * nbThreads;
+  }
+
+  public ParallelDeflater (OutputStream out) {
+    this (out, Deflater.DEFAULT_COMPRESSION, Runtime.getRuntime ().availableProcessors ());
+  }
+
+  public void write (int b) throws IOException {
+    if (length == block.length) {
+      submit (false); }
+    block [length++] = (byte) b;
+  }
+
+  public void write (byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (length == block.length) {
+        submit (false); }
+      int n = Math.min (len, block.length - length);
+      System.arraycopy (b, off, block, length, n);
+      length += n;
+      off += n;
+      len -= n; }
+  }
+
+  private void submit (final boolean last) throws IOException {
+    final byte[] data = block;
+    final int dataLength = length;
+    final byte[] dictionary = previousBlock;
+
+    crc.update (data, 0, dataLength);
+    uncompressedSize += dataLength;
+
+    pending.add (pool.submit (new Callable<byte[]> () {
+      public byte[] call () {
+        return deflate (data, dataLength, dictionary, last); }}));
+
+    previousBlock = data;
+    block = new byte [BLOCK_SIZE];
+    length = 0;
+
+    while (pending.size () > (last ? 0 : maxPending)) {
+      writeFirstPending (); }
+  }
+
+  private void writeFirstPending () throws IOException {
+    byte[] compressed;
+    try {
+      compressed = pending.remove ().get (); }
+    catch (InterruptedException e) {
+      throw new IOException (e); }
+    catch (ExecutionException e) {
+      throw new IOException (e.getCause ()); }
+    out.write (compressed);
+    compressedSize += compressed.length;
+  }
+
+  // 'dictionary', if not null, is the previous block, which is full.
+  private byte[] deflate (byte[] data, int dataLength, byte[] dictionary, boolean last) {
+    Deflater deflater = deflaters.poll ();
+    if (deflater == null) {
+      deflater = new Deflater (level, true);
+      allDeflaters.add (deflater); }
+    try {
+      if (dictionary != null) {
+        deflater.setDictionary (dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE); }
+      deflater.setInput (data, 0, dataLength);
+      if (last) {
+        deflater.finish (); }
+
+      ByteArrayOutputStream result = new ByteArrayOutputStream (dataLength / 2 + 64);
+      byte[] buffer = new byte [64 * 1024];
+      while (true) {
+        int n = deflater.deflate (buffer, 0, buffer.length,
+                                  last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+        result.write (buffer, 0, n);
+        if (last ? deflater.finished () : n < buffer.length) {
+          break; }}
+      return result.toByteArray (); }
+    finally {
+      deflater.reset ();
+      deflaters.add (deflater); }
+  }
+
+  /** Writes the rest of the compressed data, but does not close the
+   *  underlying stream. */
+  public void finish () throws IOException {
+    if (finished) {
+      return; }
+    finished = true;
+    try {
+      submit (true); }
+    finally {
+      release (); }
+  }
+
+  /** Stops the compression without writing the rest of the data or
+   *  the end of the stream, and closes the underlying stream; for
+   *  when the data cannot be written completely. */
+  public void abort () {
+    finished = true;
+    pending.clear ();
+    release ();
+    try {
+      out.close (); }
+    catch (IOException e) {
+      // what was written is abandoned anyway
+      return; }
+  }
+
+  // Stops the threads and, once no block is being compressed any more,
+  // ends all the deflaters.
+  private void release () {
+    if (pool.isTerminated ()) {
+      return; }
+    pool.shutdownNow ();
+    boolean interrupted = false;
+    while (true) {
+      try {
+        if (pool.awaitTermination (1, TimeUnit.MINUTES)) {
+          break; }}
+      catch (InterruptedException e) {
+        interrupted = true; }}
+    for (Deflater d : allDeflaters) {
+      d.end (); }
+    allDeflaters.clear ();
+    deflaters.clear ();
+    if (interrupted) {
+      Thread.currentThread ().interrupt (); }
+  }
+
+  public void close () throws IOException {
+    finish ();
+    out.close ();
+  }
+
+  //----------------------------------------------------------------------------
+
+  private static void writeShort (OutputStream out, int v) throws IOException {
+    out.write (v & 0xFF);
+    out.write ((v >>> 8) & 0xFF);
+  }
+
+  private static void writeInt (OutputStream out, long v) throws IOException {
+    writeShort (out, (int) (v & 0xFFFF));
+    writeShort (out, (int) ((v >>> 16) & 0xFFFF));
+  }
+
+  /** The data written is compressed in the gzip format to 'out'. */
+  public static ParallelDeflater gzip (OutputStream out) throws IOException {
+    // magic, deflate, no flags, no time, no extra flags, unknown OS
+    out.write (new byte[] {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF});
+
+    return new ParallelDeflater (out) {
+      public void close () throws IOException {
+        finish ();
+        writeInt (out, crc.getValue ());
+        writeInt (out, uncompressedSize);
+        out.close (); }};
+  }
+
+  /** The data written is compressed as the single entry 'entryName' of
+   *  a zip file written to 'out'. */
+  public static ParallelDeflater zip (OutputStream out, final String entryName) throws IOException {
+    final byte[] name = entryName.getBytes ("UTF-8");
+
+    Calendar c = Calendar.getInstance ();
+    final int time = (c.get (Calendar.HOUR_OF_DAY) << 11) | (c.get (Calendar.MINUTE) << 5)
+                      | (c.get (Calendar.SECOND) >> 1);
+    final int date = ((c.get (Calendar.YEAR) - 1980) << 9) | ((c.get (Calendar.MONTH) + 1) << 5)
+                      | c.get (Calendar.DAY_OF_MONTH);
+
+    // The local header does not have the sizes and the CRC, which
+    // follow the data in a data descriptor (flag bit 3).
+    writeInt (out, 0x04034b50);
+    writeShort (out, 20);          // version needed
+    writeShort (out, 0x0808);      // data descriptor, UTF-8 name
+    writeShort (out, 8);           // deflate
+    writeShort (out, time);
+    writeShort (out, date);
+    writeInt (out, 0);
+    writeInt (out, 0);
+    writeInt (out, 0);
+    writeShort (out, name.length);
+    writeShort (out, 0);
+    out.write (name);
+    final long headerSize = 30 + name.length;
+
+    return new ParallelDeflater (out) {
+      public void close () throws IOException {
+        finish ();
+        if (uncompressedSize > 0xFFFFFFFFL || compressedSize > 0xFFFFFFFFL) {
+          throw new IOException ("'" + entryName + "' is too large for a zip file without zip64"); }
+
+        writeInt (out, 0x08074b50);
+        writeInt (out, crc.getValue ());
+        writeInt (out, compressedSize);
+        writeInt (out, uncompressedSize);
+
+        long centralDirectoryOffset = headerSize + compressedSize + 16;
+        writeInt (out, 0x02014b50);
+        writeShort (out, 20);        // made by
+        writeShort (out, 20);        // version needed
+        writeShort (out, 0x0808);
+        writeShort (out, 8);
+        writeShort (out, time);
+        writeShort (out, date);
+        writeInt (out, crc.getValue ());
+        writeInt (out, compressedSize);
+        writeInt (out, uncompressedSize);
+        writeShort (out, name.length);
+        writeShort (out, 0);         // extra field
+        writeShort (out, 0);         // comment
+        writeShort (out, 0);         // disk
+        writeShort (out, 0);         // internal attributes
+        writeInt (out, 0);           // external attributes
+        writeInt (out, 0);           // offset of the local header
+        out.write (name);
+
+        writeInt (out, 0x06054b50);
+        writeShort (out, 0);
+        writeShort (out, 0);
+        writeShort (out, 1);
+        writeShort (out, 1);
+        writeInt (out, 46 + name.length);
+        writeInt (out, centralDirectoryOffset);
+        writeShort (out, 0);
+        out.close (); }};
+  }
+}
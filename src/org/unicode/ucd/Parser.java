@@ -33,9 +33,21 @@
 
 package org.unicode.ucd;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class Parser {
   static int verbosity = 0;
@@ -43,6 +55,12 @@ public class Parser {
   static public abstract class Loader {
     public int currentLine = 0;
     public abstract void process (String[] fields) throws Exception;
+
+    /** Called for each "# @missing:" line, with the fields which
+     *  follow; by default, those lines are ignored like other comments.
+     */
+    public void processMissing (String[] fields) throws Exception {
+    }
   }
 
   static public void parseTabDelimitedFile (URL baseURL, String filename, String charset, Loader l)
@@ -61,6 +79,13 @@ public class Parser {
   }
 
   static public void parseDelimitedFile (URL baseURL, String filename, Loader l, char delimiter, boolean header, String charset)
+  throws Exception {
+    parseDelimitedFile (baseURL, filename, new LoaderAdapter (l), delimiter, header, charset);
+  }
+
+  // The original implementation of parseDelimitedFile, on top of a
+  // Reader; kept as a reference for ParserBenchmark.
+  static void parseDelimitedFileWithReader (URL baseURL, String filename, Loader l, char delimiter, boolean header, String charset)
   throws Exception {
     URL url = new URL (baseURL, filename);
     LineNumberReader rd = new LineNumberReader (new InputStreamReader (url.openStream (), charset));
@@ -117,154 +142,494 @@ public class Parser {
     while (true);
   }
 
-  static public void parseSemiDelimitedFileWithAtmissings (URL baseURL, String filename, String charset, Loader l)
+  //----------------------------------------------------------------------------
+  // A parser working on the bytes of the file, which is mapped in memory
+  // when it is local. It finds the delimiters, comments and line ends
+  // directly in the bytes (they are ASCII, and so cannot appear inside
+  // a multibyte UTF-8 sequence), and gives the loader views on the
+  // fields; a field is decoded into a String only if the loader asks
+  // for it.
+
+  static public abstract class FieldLoader {
+    public int currentLine = 0;
+    public abstract void process (Fields fields) throws Exception;
+
+    public void processMissing (Fields fields) throws Exception {
+    }
+  }
+
+  /** The fields of the current line. The views returned by get are
+   *  reused from line to line, and are valid only during the call to
+   *  FieldLoader.process.
+   */
+  static public final class Fields {
+    ByteBuffer buffer;
+    Charset charset;
+    int size = 0;
+    int[] starts = new int [16];
+    int[] ends = new int [16];
+    boolean[] ascii = new boolean [16];
+    String[] strings = new String [16];
+    Field[] views = new Field [16];
+    byte[] scratch = new byte [256];
+
+    Fields (ByteBuffer buffer, Charset charset) {
+      this.buffer = buffer;
+      this.charset = charset;
+    }
+
+    void add (int start, int end) {
+      if (size == starts.length) {
+        starts = Arrays.copyOf (starts, 2 * size);
+        ends = Arrays.copyOf (ends, 2 * size);
+        ascii = Arrays.copyOf (ascii, 2 * size);
+        strings = Arrays.copyOf (strings, 2 * size);
+        views = Arrays.copyOf (views, 2 * size); }
+      // trim, as String.trim does
+      while (start < end && (buffer.get (start) & 0xff) <= ' ') {
+        start++; }
+      while (end > start && (buffer.get (end - 1) & 0xff) <= ' ') {
+        end--; }
+      boolean a = true;
+      for (int i = start; i < end && a; i++) {
+        a = buffer.get (i) >= 0; }
+      starts [size] = start;
+      ends [size] = end;
+      ascii [size] = a;
+      strings [size] = null;
+      size++;
+    }
+
+    public int size () {
+      return size;
+    }
+
+    public CharSequence get (int i) {
+      if (views [i] == null) {
+        views [i] = new Field (this, i); }
+      return views [i];
+    }
+
+    public String getString (int i) {
+      if (strings [i] == null) {
+        int length = ends [i] - starts [i];
+        if (length == 0) {
+          strings [i] = ""; }
+        else {
+          if (length > scratch.length) {
+            scratch = new byte [2 * length]; }
+          for (int j = 0; j < length; j++) {
+            scratch [j] = buffer.get (starts [i] + j); }
+          strings [i] = new String (scratch, 0, length, charset); }}
+      return strings [i];
+    }
+
+    public String[] toStrings () {
+      String[] s = new String [size];
+      for (int i = 0; i < size; i++) {
+        s [i] = getString (i); }
+      return s;
+    }
+
+    boolean isAscii (int i) {
+      return ascii [i];
+    }
+
+    // Sets the fields to those of b [start, end).
+    void split (int start, int end, char delimiter) {
+      size = 0;
+      int fieldStart = start;
+      for (int i = start; i < end; i++) {
+        if (buffer.get (i) == delimiter) {
+          add (fieldStart, i);
+          fieldStart = i + 1; }}
+      add (fieldStart, end);
+    }
+
+    // Sets the fields to the columns of b [start, end): field f starts
+    // at column cols [f] and ends before column cols [f + 1], the
+    // first column being 1; the columns past the end are empty.
+    void splitColumns (int start, int end, int[] cols) {
+      size = 0;
+      for (int f = 0; f + 1 < cols.length; f++) {
+        add (Math.min (start + cols [f] - 1, end), Math.min (start + cols [f + 1] - 1, end)); }
+    }
+  }
+
+  // A view on one field; characters are read from the buffer when the
+  // field is ASCII, from the decoded string otherwise.
+  static final class Field implements CharSequence {
+    final Fields fields;
+    final int i;
+
+    Field (Fields fields, int i) {
+      this.fields = fields;
+      this.i = i;
+    }
+
+    public int length () {
+      if (fields.isAscii (i)) {
+        return fields.ends [i] - fields.starts [i]; }
+      return toString ().length ();
+    }
+
+    public char charAt (int index) {
+      if (fields.isAscii (i)) {
+        return (char) fields.buffer.get (fields.starts [i] + index); }
+      return toString ().charAt (index);
+    }
+
+    public CharSequence subSequence (int start, int end) {
+      return toString ().subSequence (start, end);
+    }
+
+    public String toString () {
+      return fields.getString (i);
+    }
+  }
+
+  // Makes a Loader usable where a FieldLoader is expected.
+  static class LoaderAdapter extends FieldLoader {
+    final Loader l;
+
+    LoaderAdapter (Loader l) {
+      this.l = l;
+    }
+
+    public void process (Fields fields) throws Exception {
+      l.currentLine = currentLine;
+      l.process (fields.toStrings ());
+    }
+
+    public void processMissing (Fields fields) throws Exception {
+      l.currentLine = currentLine;
+      l.processMissing (fields.toStrings ());
+    }
+  }
+
+  static ByteBuffer read (URL url) throws Exception {
+    if ("file".equals (url.getProtocol ())) {
+      FileChannel fc = FileChannel.open (Paths.get (url.toURI ()), StandardOpenOption.READ);
+      try {
+        return fc.map (FileChannel.MapMode.READ_ONLY, 0, fc.size ()); }
+      finally {
+        fc.close (); }}
+
+    URLConnection c = url.openConnection ();
+    InputStream in = c.getInputStream ();
+    try {
+      long size = c.getContentLengthLong ();
+      ByteArrayOutputStream out = new ByteArrayOutputStream (size > 0 && size < Integer.MAX_VALUE ? (int) size : 65536);
+      byte[] b = new byte [65536];
+      int n;
+      while ((n = in.read (b)) != -1) {
+        out.write (b, 0, n); }
+      return ByteBuffer.wrap (out.toByteArray ()); }
+    finally {
+      in.close (); }
+  }
+
+  static public boolean exists (URL url) {
+    try {
+      if ("file".equals (url.getProtocol ())) {
+        return new File (url.toURI ()).isFile (); }
+      url.openStream ().close ();
+      return true; }
+    catch (Exception e) {
+      return false; }
+  }
+
+  static final byte[] MISSING = {'#', ' ', '@', 'm', 'i', 's', 's', 'i', 'n', 'g', ':'};
+
+  // Same behaviour as the Reader based version: lines end with \n, \r
+  // or \r\n; comments start at the first '#'; lines shorter than two
+  // characters are skipped; fields are trimmed. In addition, the
+  // "# @missing:" lines are given to FieldLoader.processMissing.
+  static public void parseDelimitedFile (URL baseURL, String filename, FieldLoader l, char delimiter, boolean header, String charset)
   throws Exception {
-    final String atmissing = "# @missing: ";
-    final String allcodespace = "0000..10FFFF; Left_To_Right";
-    final char delimiter = ';';
     URL url = new URL (baseURL, filename);
-    LineNumberReader rd = new LineNumberReader (new InputStreamReader (url.openStream (), charset));
+    ByteBuffer b = read (url);
+    LoadProfile.read (b.limit ());
 
     if (verbosity >= 3) {
       System.out.println ("      ... " + url); }
 
-    do {
-      String s = rd.readLine ();
-      l.currentLine = rd.getLineNumber ();
-      if (s == null) {
-        break; }
+    parseDelimitedBytes (b, 0, b.limit (), 0, l, delimiter, header, charset);
+  }
+
+  /** Parses the lines in b [start, limit), as parseDelimitedFile does
+   *  for a whole file. The first line is numbered firstLine + 1, and
+   *  'start' must be the start of a line.
+   */
+  static public void parseDelimitedBytes (ByteBuffer b, int start, int limit, int firstLine, FieldLoader l, char delimiter, boolean header, String charset)
+  throws Exception {
+    Fields fields = new Fields (b, Charset.forName (charset));
+    int pos = start;
+    int lineNumber = firstLine;
+    int records = 0;
+    boolean inHeader = header;
+
+    while (pos < limit) {
+      int lineStart = pos;
+      int lineEnd = pos;
+      int comment = -1;
+      while (lineEnd < limit) {
+        byte c = b.get (lineEnd);
+        if (c == '\n' || c == '\r') {
+          break; }
+        if (c == '#' && comment == -1) {
+          comment = lineEnd; }
+        lineEnd++; }
+
+      pos = lineEnd;
+      if (pos < limit && b.get (pos) == '\r') {
+        pos++; }
+      if (pos < limit && b.get (pos) == '\n') {
+        pos++; }
+      lineNumber++;
+      l.currentLine = lineNumber;
+
+      if (inHeader) {
+        inHeader = (lineEnd != lineStart);
+        continue; }
+
+      if (comment == lineStart && startsWith (b, lineStart, lineEnd, MISSING)) {
+        fields.split (lineStart + MISSING.length, lineEnd, delimiter);
+        l.processMissing (fields);
+        continue; }
 
-      int comment = s.indexOf ('#');
       if (comment != -1) {
-        if (s.startsWith (atmissing)) {  // @missing line
-          s = s.substring (atmissing.length ());
-          if (allcodespace.equals (s)) {
-            // Skip the @missing line that covers the entire codespace,
-            // because it would try to create too many boundaries.
-            // We will fill in the gaps with the L default before the end.
-            continue; }}
-        else {                           // regular comment line
-          s = s.substring (0, comment); }}
+        lineEnd = comment; }
 
-      if (s.length () < 2) {
+      if (charLength (b, lineStart, lineEnd) < 2) {
         continue; }
 
-      // Unfortunately, both String.split and StringTokenizer do not
-      // behave the way we need on empty fields; so we have to split the
-      // fields by hand.
-      int start = 0;
-      int length = s.length ();
-      int nFields = 1;
-      while (start < length) {
-        int semi = s.indexOf (delimiter, start);
-        if (semi == -1) {
-           break; }
-        nFields++;
-        start = semi + 1; }
-      String[] fields = new String [nFields];
+      fields.split (lineStart, lineEnd, delimiter);
+      l.process (fields);
+      records++; }
 
-      start = 0;
-      for (int f = 0; f < nFields - 1; f++) {
-        int semi = s.indexOf (delimiter, start);
-        fields [f] = s.substring (start, semi).trim ();
-        start = semi + 1; }
-      if (start >= length) {
-        fields [nFields-1] = ""; }
-      else {
-        fields [nFields-1] = s.substring (start).trim (); }
+    LoadProfile.parsed (lineNumber - firstLine, records);
+  }
 
-      l.process (fields); }
+  static boolean startsWith (ByteBuffer b, int start, int end, byte[] prefix) {
+    if (end - start < prefix.length) {
+      return false; }
+    for (int i = 0; i < prefix.length; i++) {
+      if (b.get (start + i) != prefix [i]) {
+        return false; }}
+    return true;
+  }
 
-    while (true);
+  /** Splits b [0, limit) into at most n ranges of whole lines, of about
+   *  the same size. Returns the start of each range, followed by the
+   *  limit.
+   */
+  static public int[] splitLines (ByteBuffer b, int n) {
+    int limit = b.limit ();
+    int[] starts = new int [n + 1];
+    int count = 1;
+    for (int i = 1; i < n; i++) {
+      int pos = Math.max ((int) ((long) limit * i / n), starts [count - 1]);
+      while (pos < limit && b.get (pos) != '\n') {
+        pos++; }
+      if (pos + 1 >= limit) {
+        break; }
+      if (pos + 1 > starts [count - 1]) {
+        starts [count++] = pos + 1; }}
+    starts [count++] = limit;
+    return Arrays.copyOf (starts, count);
+  }
+
+  // The number of characters in a range of bytes, as far as telling if
+  // it is less than two: an ASCII line of two bytes has two characters,
+  // but a single non-ASCII character may take up to four bytes.
+  static int charLength (ByteBuffer b, int start, int end) {
+    if (end - start < 2 || end - start > 4) {
+      return end - start; }
+    int n = 0;
+    for (int i = start; i < end; i++) {
+      int c = b.get (i) & 0xff;
+      if (c < 0x80 || c >= 0xc0) {
+        n += (c >= 0xf0 ? 2 : 1); }}
+    return n;
   }
 
-  public interface LoaderWithCodePoints {
+  static public abstract class LoaderWithCodePoints {
+    public int currentLine = 0;
+
     public abstract void process (int first, int last, String[] fields) throws Exception;
   }
 
-  static public void parseSemiDelimitedFileWithCodePointsAndAtmissings (URL baseURL, String filename, int field, String charset, LoaderWithCodePoints l)
-  throws Exception {
-    final int cpField = field;
-    final LoaderWithCodePoints l2 = l;
-    parseSemiDelimitedFileWithAtmissings (baseURL, filename, charset,
-                                          new Loader ()  {
-      public void process (String [] fields) throws Exception {
-        int first, last;
-        int dotdot = fields [cpField].indexOf ("..");
-        if (dotdot != -1) {
-          first = Integer.parseInt (fields [cpField].substring (0, dotdot), 16);
-          last = Integer.parseInt (fields [cpField].substring (dotdot+2), 16); }
-        else {
-          first = Integer.parseInt (fields [cpField], 16);
-          last = first; }
-        l2.process (first, last, fields); }});
+  /** Parses the hexadecimal number in s [start, end), without creating
+   *  intermediate strings. Throws NumberFormatException as
+   *  Integer.parseInt (..., 16) would.
+   */
+  static public int parseHex (CharSequence s, int start, int end) {
+    if (start >= end || end - start > 8) {
+      throw new NumberFormatException ("For input string: \"" + s.subSequence (start, end) + "\""); }
+    int value = 0;
+    for (int i = start; i < end; i++) {
+      int d = Character.digit (s.charAt (i), 16);
+      if (d == -1) {
+        throw new NumberFormatException ("For input string: \"" + s.subSequence (start, end) + "\""); }
+      value = (value << 4) | d; }
+    return value;
   }
 
-  static public void parseSemiDelimitedFileWithCodePoints (URL baseURL, String filename, int field, String charset, LoaderWithCodePoints l)
-  throws Exception {
-    final int cpField = field;
-    final LoaderWithCodePoints l2 = l;
-    parseSemiDelimitedFile (baseURL, filename, charset,
-                            new Loader ()  {
-      public void process (String [] fields) throws Exception {
-        int first, last;
-        int dotdot = fields [cpField].indexOf ("..");
-        if (dotdot != -1) {
-          first = Integer.parseInt (fields [cpField].substring (0, dotdot), 16);
-          last = Integer.parseInt (fields [cpField].substring (dotdot+2), 16); }
-        else {
-          first = Integer.parseInt (fields [cpField], 16);
-          last = first; }
-        l2.process (first, last, fields); }});
+  // The code point field of a line, as a single code point "XXXX", a
+  // range "XXXX..YYYY", or, if uPrefix, a single code point "U+XXXX";
+  // the result is left in first and last. A missing U+ is recorded in
+  // 'diagnostics', if not null.
+  static final class CodePointField {
+    final boolean uPrefix;
+    final String filename;
+    final Diagnostics diagnostics;
+    int first;
+    int last;
+
+    CodePointField (boolean uPrefix, String filename, Diagnostics diagnostics) {
+      this.uPrefix = uPrefix;
+      this.filename = filename;
+      this.diagnostics = diagnostics;
+    }
+
+    void parse (CharSequence s, int line) {
+      int length = s.length ();
+      int dotdot = -1;
+      for (int i = 0; i + 1 < length; i++) {
+        if (s.charAt (i) == '.' && s.charAt (i + 1) == '.') {
+          dotdot = i;
+          break; }}
+      if (dotdot != -1) {
+        first = parseHex (s, 0, dotdot);
+        last = parseHex (s, dotdot + 2, length); }
+      else if (uPrefix) {
+        if (length < 2 || s.charAt (0) != 'U' || s.charAt (1) != '+') {
+          if (diagnostics != null) {
+            diagnostics.record (Diagnostics.Kind.NO_U_PREFIX, filename, line, -1, null, s.toString ()); }}
+        first = parseHex (s, Math.min (2, length), length);
+        last = first; }
+      else {
+        first = parseHex (s, 0, length);
+        last = first; }
+    }
   }
 
-  static public void parseSemiDelimitedFileWithUCodePoints (URL baseURL, String filename, int field, String charset, LoaderWithCodePoints l)
-  throws Exception {
-    final int cpField = field;
-    final LoaderWithCodePoints l2 = l;
-    final String filename2 = filename;
-    parseSemiDelimitedFile (baseURL, filename, charset,
-                            new Loader ()  {
-      public void process (String [] fields) throws Exception {
-        int first, last;
-        int dotdot = fields [cpField].indexOf ("..");
-        if (dotdot != -1) {
-          first = Integer.parseInt (fields [cpField].substring (0, dotdot), 16);
-          last = Integer.parseInt (fields [cpField].substring (dotdot+2), 16); }
-        else {
-          if (! fields [cpField].startsWith ("U+")) {
-            System.err.println ("@@@ in '" + filename2 + "', code point does not start with U+ ('" + fields [cpField] + "')"); }
-          first = Integer.parseInt (fields [cpField].substring (2), 16);
-          last = first; }
-        l2.process (first, last, fields); }});
+  /** A "# @missing:" line: the default value of a property for a range
+   *  of code points, when the file does not give one. 'fields' are all
+   *  the fields of the line, as for a data line.
+   */
+  static public final class Missing {
+    public final int firstCp;
+    public final int lastCp;
+    public final String[] fields;
+
+    Missing (int firstCp, int lastCp, String[] fields) {
+      this.firstCp = firstCp;
+      this.lastCp = lastCp;
+      this.fields = fields;
+    }
+
+    public boolean isWholeCodespace () {
+      return firstCp == 0 && lastCp == 0x10ffff;
+    }
   }
 
+  // Parses the code point field directly from the bytes of the line,
+  // and hands the line to a LoaderWithCodePoints. The @missing lines
+  // are collected in 'missing'.
+  static final class CodePointsAdapter extends FieldLoader {
+    final int cpField;
+    final CodePointField cps;
+    final LoaderWithCodePoints l;
+    final List<Missing> missing = new ArrayList<Missing> ();
+
+    CodePointsAdapter (int cpField, boolean uPrefix, String filename, Diagnostics diagnostics,
+                       LoaderWithCodePoints l) {
+      this.cpField = cpField;
+      this.cps = new CodePointField (uPrefix, filename, diagnostics);
+      this.l = l;
+    }
+
+    public void process (Fields fields) throws Exception {
+      cps.parse (fields.get (cpField), currentLine);
+      l.currentLine = currentLine;
+      l.process (cps.first, cps.last, fields.toStrings ());
+    }
+
+    public void processMissing (Fields fields) {
+      cps.parse (fields.get (cpField), currentLine);
+      missing.add (new Missing (cps.first, cps.last, fields.toStrings ()));
+    }
+  }
 
+  /** Returns the @missing lines of the file, in order. */
+  static public List<Missing> parseSemiDelimitedFileWithCodePoints (URL baseURL, String filename, int field, String charset, LoaderWithCodePoints l)
+  throws Exception {
+    CodePointsAdapter a = new CodePointsAdapter (field, false, filename, null, l);
+    parseDelimitedFile (baseURL, filename, a, ';', false, charset);
+    return a.missing;
+  }
 
+  /** As parseSemiDelimitedFileWithCodePoints, with single code points
+   *  as "U+XXXX"; those without U+ are recorded in 'diagnostics'. */
+  static public List<Missing> parseSemiDelimitedFileWithUCodePoints (URL baseURL, String filename, int field, String charset,
+                                                                     Diagnostics diagnostics, LoaderWithCodePoints l)
+  throws Exception {
+    CodePointsAdapter a = new CodePointsAdapter (field, true, filename, diagnostics, l);
+    parseDelimitedFile (baseURL, filename, a, ';', false, charset);
+    return a.missing;
+  }
 
   static public void parseTabularFileWithHeader (URL baseURL, String filename, String charset, int[] cols, Loader l)
+  throws Exception {
+    parseFixedColumnFile (baseURL, filename, charset, cols, new LoaderAdapter (l));
+  }
+
+  /** Parses a file made of a header, terminated by a blank line, and
+   *  of lines with fixed columns, as described by Fields.splitColumns.
+   *  The fields are trimmed; empty lines are skipped.
+   */
+  static public void parseFixedColumnFile (URL baseURL, String filename, String charset, int[] cols, FieldLoader l)
   throws Exception {
     URL url = new URL (baseURL, filename);
-    LineNumberReader rd = new LineNumberReader (new InputStreamReader (url.openStream (), charset));
+    ByteBuffer b = read (url);
+    LoadProfile.read (b.limit ());
 
     if (verbosity >= 3) {
       System.out.println ("      ... " + url); }
 
-    String s;
-    String[] fields = new String [cols.length -1];
-
-    // Skip the header, which is terminated by a blank line.
-    do {
-      s = rd.readLine (); }
-    while (s.length () != 0);
+    Fields fields = new Fields (b, Charset.forName (charset));
+    int limit = b.limit ();
+    int pos = 0;
+    int lineNumber = 0;
+    int records = 0;
+    boolean inHeader = true;
+
+    while (pos < limit) {
+      int lineStart = pos;
+      int lineEnd = pos;
+      while (lineEnd < limit && b.get (lineEnd) != '\n' && b.get (lineEnd) != '\r') {
+        lineEnd++; }
+
+      pos = lineEnd;
+      if (pos < limit && b.get (pos) == '\r') {
+        pos++; }
+      if (pos < limit && b.get (pos) == '\n') {
+        pos++; }
+      lineNumber++;
+      l.currentLine = lineNumber;
+
+      if (inHeader) {
+        inHeader = (lineEnd != lineStart);
+        continue; }
+      if (lineEnd == lineStart) {
+        continue; }
 
-    do {
-      s = rd.readLine ();
+      fields.splitColumns (lineStart, lineEnd, cols);
+      l.process (fields);
+      records++; }
 
-      if (s != null) {
-        for (int f = 0; f < cols.length - 1; f++) {
-          fields [f] = s.substring (cols [f]-1, cols [f+1]-1).trim () ; }
-        l.process (fields); }
-    }  while (s != null);
+    LoadProfile.parsed (lineNumber, records);
   }
 }
@@ -0,0 +1,99 @@
+// COPYRIGHT AND PERMISSION NOTICE
+//
+// Copyright 2006-2016 Unicode Inc.
+//
+// All rights reserved.
+//
+// Permission is hereby granted, free of charge, to any person
+// obtaining a copy of this software and associated documentation
+// files (the "Software"), to deal in the Software without
+// restriction, including without limitation the rights to use, copy,
+// modify, merge, publish, distribute, and/or sell copies of the
+// Software, and to permit persons to whom the Software is furnished
+// to do so, provided that the above copyright notice(s) and this
+// permission notice appear in all copies of the Software and that
+// both the above copyright notice(s) and this permission notice
+// appear in supporting documentation.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT OF THIRD PARTY RIGHTS. IN NO EVENT SHALL THE
+// COPYRIGHT HOLDER OR HOLDERS INCLUDED IN THIS NOTICE BE LIABLE FOR
+// ANY CLAIM, OR ANY SPECIAL INDIRECT OR CONSEQUENTIAL DAMAGES, OR ANY
+// DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS,
+// WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS
+// ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE
+// OF THIS SOFTWARE.
+//
+// Except as contained in this notice, the name of a copyright holder
+// shall not be used in advertising or otherwise to promote the sale,
+// use or other dealings in this Software without prior written
+// authorization of the copyright holder.
+
+package org.unicode.ucd;
+
+import java.io.File;
+import java.net.URL;
+
+import org.unicode.ucd.Parser.FieldLoader;
+import org.unicode.ucd.Parser.Fields;
+import org.unicode.ucd.Parser.Loader;
+
+/** Compares the Reader based parser with the byte based one, on
+ *  UnicodeData.txt and Unihan.txt.
+ *
+ *  java org.unicode.ucd.ParserBenchmark <directory of the UCD> [runs]
+ */
+
+public class ParserBenchmark {
+
+  static long checksum;
+
+  static class StringsLoader extends Loader {
+    public void process (String[] fields) {
+      checksum += fields.length;
+      for (String f : fields) {
+        checksum += f.length (); }}
+  }
+
+  static class ViewsLoader extends FieldLoader {
+    public void process (Fields fields) {
+      checksum += fields.size ();
+      for (int i = 0; i < fields.size (); i++) {
+        checksum += fields.get (i).length (); }}
+  }
+
+  static void run (String label, URL base, String file, char delimiter, String charset, int engine) throws Exception {
+    checksum = 0;
+    long start = System.nanoTime ();
+    switch (engine) {
+      case 0:
+        Parser.parseDelimitedFileWithReader (base, file, new StringsLoader (), delimiter, false, charset);
+        break;
+      case 1:
+        Parser.parseDelimitedFile (base, file, new StringsLoader (), delimiter, false, charset);
+        break;
+      default:
+        Parser.parseDelimitedFile (base, file, new ViewsLoader (), delimiter, false, charset);
+        break; }
+    long ms = (System.nanoTime () - start) / 1000000;
+    System.out.println ("  " + label + "\t" + ms + " ms\t(checksum " + checksum + ")");
+  }
+
+  public static void main (String[] args) throws Exception {
+    URL base = new File (args [0]).toURI ().toURL ();
+    int runs = args.length > 1 ? Integer.parseInt (args [1]) : 5;
+
+    String[] files = {"UnicodeData.txt", "Unihan.txt"};
+    char[] delimiters = {';', '\t'};
+    String[] charsets = {"US-ASCII", "UTF-8"};
+
+    for (int f = 0; f < files.length; f++) {
+      System.out.println (files [f]);
+      for (int r = 0; r < runs; r++) {
+        run ("reader ", base, files [f], delimiters [f], charsets [f], 0);
+        run ("bytes  ", base, files [f], delimiters [f], charsets [f], 1);
+        run ("views  ", base, files [f], delimiters [f], charsets [f], 2); }}
+  }
+}
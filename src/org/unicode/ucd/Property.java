@@ -33,10 +33,13 @@
 
 package org.unicode.ucd;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Property {
   // When we generate the XML representation of a set of properties (as
@@ -52,9 +55,16 @@ public class Property {
   // will show up in an order determined by when they were first seen,
   // but that's ok.
 
-  static private IdentityHashMap<String, Property> propertiesByName = new IdentityHashMap<String, Property> ();
+  // The short names, long names and aliases of the properties, by
+  // their loose form (see loose); filled as the properties are created.
+  // When two names have the same loose form, the first one wins.
+  static private ConcurrentHashMap<String, Property> propertiesByName = new ConcurrentHashMap<String, Property> ();
   static private LinkedHashSet<Property> allProperties = new LinkedHashSet<Property> ();
 
+  // Each property gets an ordinal when it is created, which Group uses
+  // to index its values; byOrdinal maps it back to the property.
+  static private ArrayList<Property> byOrdinal = new ArrayList<Property> ();
+
 
 
   public static Property type                        = new Property ("type");
@@ -348,10 +358,42 @@ public class Property {
   public static Property MCM                         = new Property ("MCM", "Modifier_Combining_Mark", false);
   public static Property kFanqie                     = new Property ("kFanqie");
 
+  // The binary properties, whose values are "Y" or "N". Group keeps
+  // those values in bit sets, indexed by binaryIndex.
+  static private ArrayList<Property> byBinaryIndex = new ArrayList<Property> ();
+
+  static {
+    Property[] binaryProperties = {
+      bidi_m, dash, wspace, hyphen, qmark, radical, ideo, uideo, idsb, idst,
+      di, odi, alpha, oalpha, upper, oupper, lower, olower, math, omath, hex,
+      ahex, nchar, vs, bidi_c, join_c, gr_base, gr_ext, ogr_ext, gr_link,
+      sterm, ext, term, dia, dep, ids, oids, xids, idc, oidc, xidc, sd, loe,
+      pat_ws, pat_syn, ce, comp_ex, xo_nfc, xo_nfd, xo_nfkc, xo_nfkd, ci,
+      cased, cwcf, cwcm, cwkcf, cwl, cwt, cwu, pcm, RI, emoji, epres, emod,
+      ebase, ecomp, extpict, ID_Compat_Math_Start, ID_Compat_Math_Continue,
+      IDSU, MCM};
+    for (Property p : binaryProperties) {
+      p.binaryIndex = byBinaryIndex.size ();
+      byBinaryIndex.add (p); }
+  }
+
+  // The properties whose values are sequences of code points; Group
+  // keeps those values as CodePoints.
+  static {
+    Property[] codePointsProperties = {
+      dm, suc, slc, stc, uc, lc, tc, scf, cf, bpb, bmg, fc_nfkc, nfkc_cf,
+      NFKC_SCF};
+    for (Property p : codePointsProperties) {
+      p.codePoints = true; }
+  }
+
   private String shortName;
   private String longName;
   private Set<String> aliases;
   private Boolean enumerated;
+  private final int ordinal;
+  private int binaryIndex = -1;
+  private boolean codePoints = false;
 
   private Property (String shortName) {
     this (shortName, shortName);
@@ -379,10 +421,13 @@ public class Property {
     this.enumerated = enumerated;
     this.aliases = new HashSet<String> ();
     if (alias != null) {
-      this.aliases.add (alias); }
+      this.aliases.add (alias);
+      propertiesByName.putIfAbsent (loose (alias), this); }
+    this.ordinal = byOrdinal.size ();
+    byOrdinal.add (this);
     allProperties.add (this);
-    propertiesByName.put (shortName, this);
-    propertiesByName.put (longName, this);
+    propertiesByName.putIfAbsent (loose (shortName), this);
+    propertiesByName.putIfAbsent (loose (longName), this);
   }
 
 
@@ -402,25 +447,96 @@ public class Property {
     return enumerated;
   }
 
+  public int getOrdinal () {
+    return ordinal;
+  }
+
+  public static Property fromOrdinal (int ordinal) {
+    return byOrdinal.get (ordinal);
+  }
+
+  public boolean isBinary () {
+    return binaryIndex != -1;
+  }
+
+  public boolean isCodePoints () {
+    return codePoints;
+  }
+
+  public int getBinaryIndex () {
+    return binaryIndex;
+  }
+
+  public static Property fromBinaryIndex (int binaryIndex) {
+    return byBinaryIndex.get (binaryIndex);
+  }
+
+  public static int binaryCount () {
+    return byBinaryIndex.size ();
+  }
+
+  /** Returns the number of properties, which is also one more than the
+   *  largest ordinal. */
+  public static int count () {
+    return byOrdinal.size ();
+  }
+
+
+  /** The form of a name used to look it up: lower case, without
+   *  whitespace, underscores and hyphens, as in the loose matching of
+   *  UAX44-LM3. (The initial "is" is handled by fromString.)
+   */
+  static String loose (CharSequence s) {
+    StringBuilder sb = new StringBuilder (s.length ());
+    for (int i = 0; i < s.length (); i++) {
+      char c = s.charAt (i);
+      if (c != '_' && c != '-' && ! Character.isWhitespace (c)) {
+        sb.append (Character.toLowerCase (c)); }}
+    return sb.toString ();
+  }
 
   public static Property fromString (String s) {
-    { Property p = propertiesByName.get (s);
-      if (p != null) {
-        return p; }}
-
-    for (Property p : allProperties) {
-      if (p.shortName.equalsIgnoreCase (s)) {
-        return p; }
-      if (p.longName.equalsIgnoreCase (s)) {
-        return p; }
-      for (String alias : p.aliases) {
-        if (alias.equalsIgnoreCase (s)) {
-          return p; }}}
+    String key = loose (s);
+    Property p = propertiesByName.get (key);
+    if (p == null && key.startsWith ("is")) {
+      p = propertiesByName.get (key.substring (2)); }
+    if (p != null) {
+      return p; }
+    return register (s, key);
+  }
 
+  // Synchronized, as the files of a UCD may be loaded in parallel.
+  private static synchronized Property register (String s, String key) {
+    Property p = propertiesByName.get (key);
+    if (p != null) {
+      return p; }
     System.err.println ("@@@ unknown property " + s);
     return new Property (s);
   }
 
+  /** Looks up names as fromString does, for a loader which sees the
+   *  same few names over and over: it remembers the last name, and
+   *  the names it has already seen. Each loader has its own; it is not
+   *  thread safe.
+   */
+  public static final class Memo {
+    private String lastName = null;
+    private Property last = null;
+    private final Map<String, Property> seen = new HashMap<String, Property> ();
+
+    public Property fromString (String s) {
+      if (s.equals (lastName)) {
+        return last; }
+      Property p = seen.get (s);
+      if (p == null) {
+        p = Property.fromString (s);
+        seen.put (s, p); }
+      lastName = s;
+      last = p;
+      return p;
+    }
+  }
+
   public static Set<Property> values () {
     return allProperties;
   }
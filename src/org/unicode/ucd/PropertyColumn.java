@@ -0,0 +1,141 @@
+// COPYRIGHT AND PERMISSION NOTICE
+//
+// Copyright 2006-2016 Unicode Inc.
+//
+// All rights reserved.
+//
+// Permission is hereby granted, free of charge, to any person
+// obtaining a copy of this software and associated documentation
+// files (the "Software"), to deal in the Software without
+// restriction, including without limitation the rights to use, copy,
+// modify, merge, publish, distribute, and/or sell copies of the
+// Software, and to permit persons to whom the Software is furnished
+// to do so, provided that the above copyright notice(s) and this
+// permission notice appear in all copies of the Software and that
+// both the above copyright notice(s) and this permission notice
+// appear in supporting documentation.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT OF THIRD PARTY RIGHTS. IN NO EVENT SHALL THE
+// COPYRIGHT HOLDER OR HOLDERS INCLUDED IN THIS NOTICE BE LIABLE FOR
+// ANY CLAIM, OR ANY SPECIAL INDIRECT OR CONSEQUENTIAL DAMAGES, OR ANY
+// DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS,
+// WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS
+// ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE
+// OF THIS SOFTWARE.
+//
+// Except as contained in this notice, the name of a copyright holder
+// shall not be used in advertising or otherwise to promote the sale,
+// use or other dealings in this Software without prior written
+// authorization of the copyright holder.
+
+package org.unicode.ucd;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Values of one property over runs of code points, collected by a
+ *  parser and then stored in a repertoire at once with
+ *  Repertoire.applyBatch.
+ */
+
+public class PropertyColumn {
+
+  public final Property property;
+
+  protected int[] firstCps = new int [256];
+  protected int[] lastCps = new int [256];
+  protected Object[] values = new Object [256];
+  protected int size = 0;
+
+  public PropertyColumn (Property property) {
+    this.property = property;
+  }
+
+  // The value is converted here, once for the whole run, as
+  // Repertoire.put does.
+  public void add (int firstCp, int lastCp, String v) {
+    addObject (firstCp, lastCp, CodePoints.valueOf (property, v));
+  }
+
+  public void addObject (int firstCp, int lastCp, Object v) {
+    if (size == firstCps.length) {
+      firstCps = Arrays.copyOf (firstCps, 2 * size);
+      lastCps = Arrays.copyOf (lastCps, 2 * size);
+      values = Arrays.copyOf (values, 2 * size); }
+    firstCps [size] = firstCp;
+    lastCps [size] = lastCp;
+    values [size] = v;
+    size++;
+  }
+
+  public int size () {
+    return size;
+  }
+
+  public int firstCp (int i) {
+    return firstCps [i];
+  }
+
+  public int lastCp (int i) {
+    return lastCps [i];
+  }
+
+  public Object value (int i) {
+    return values [i];
+  }
+
+  // Put the runs in code point order and make them disjoint, keeping
+  // for each code point the first run of the file that covers it, as
+  // successive puts would. The files are almost always sorted and
+  // disjoint already, which is a single check. Otherwise, the parts
+  // of the later runs that lose are returned, so that they can still
+  // be reported; null if there are none.
+  public PropertyColumn resolveOverlaps () {
+    boolean disjoint = true;
+    for (int i = 1; i < size && disjoint; i++) {
+      disjoint = lastCps [i - 1] < firstCps [i]; }
+    if (disjoint) {
+      return null; }
+
+    // first code point of a winning part -> {last code point, run}
+    TreeMap<Integer, int[]> winners = new TreeMap<Integer, int[]> ();
+    PropertyColumn losers = null;
+    for (int i = 0; i < size; i++) {
+      int cp = firstCps [i];
+      Map.Entry<Integer, int[]> w = winners.floorEntry (cp);
+      if (w == null || w.getValue () [0] < cp) {
+        w = winners.ceilingEntry (cp); }
+      while (cp <= lastCps [i]) {
+        if (w == null || w.getKey () > lastCps [i]) {
+          winners.put (cp, new int[] {lastCps [i], i});
+          break; }
+        if (w.getKey () > cp) {
+          winners.put (cp, new int[] {w.getKey () - 1, i}); }
+        int lostFirstCp = Math.max (cp, w.getKey ());
+        int lostLastCp = Math.min (lastCps [i], w.getValue () [0]);
+        if (losers == null) {
+          losers = new PropertyColumn (property); }
+        losers.addObject (lostFirstCp, lostLastCp, values [i]);
+        cp = lostLastCp + 1;
+        w = winners.higherEntry (w.getKey ()); }}
+
+    int[] f = new int [winners.size ()];
+    int[] l = new int [winners.size ()];
+    Object[] v = new Object [winners.size ()];
+    int n = 0;
+    for (Map.Entry<Integer, int[]> e : winners.entrySet ()) {
+      f [n] = e.getKey ();
+      l [n] = e.getValue () [0];
+      v [n] = values [e.getValue () [1]];
+      n++; }
+    firstCps = f;
+    lastCps = l;
+    values = v;
+    size = n;
+    return losers;
+  }
+}
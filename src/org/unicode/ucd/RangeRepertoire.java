@@ -0,0 +1,82 @@
+// COPYRIGHT AND PERMISSION NOTICE
+//
+// Copyright 2006-2016 Unicode Inc.
+//
+// All rights reserved.
+//
+// Permission is hereby granted, free of charge, to any person
+// obtaining a copy of this software and associated documentation
+// files (the "Software"), to deal in the Software without
+// restriction, including without limitation the rights to use, copy,
+// modify, merge, publish, distribute, and/or sell copies of the
+// Software, and to permit persons to whom the Software is furnished
+// to do so, provided that the above copyright notice(s) and this
+// permission notice appear in all copies of the Software and that
+// both the above copyright notice(s) and this permission notice
+// appear in supporting documentation.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT OF THIRD PARTY RIGHTS. IN NO EVENT SHALL THE
+// COPYRIGHT HOLDER OR HOLDERS INCLUDED IN THIS NOTICE BE LIABLE FOR
+// ANY CLAIM, OR ANY SPECIAL INDIRECT OR CONSEQUENTIAL DAMAGES, OR ANY
+// DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS,
+// WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS
+// ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE
+// OF THIS SOFTWARE.
+//
+// Except as contained in this notice, the name of a copyright holder
+// shall not be used in advertising or otherwise to promote the sale,
+// use or other dealings in this Software without prior written
+// authorization of the copyright holder.
+
+package org.unicode.ucd;
+
+import java.util.TreeMap;
+
+/** A repertoire which keeps its groups in a tree indexed by their
+ *  first code point, rather than in an array indexed by code point.
+ *  Looking up or splitting a group costs O(log n) in the number of
+ *  groups, independently of the length of the ranges involved.
+ */
+
+public class RangeRepertoire extends Repertoire {
+
+  // The groups, keyed by their first code point.
+  protected TreeMap<Integer, Group> byFirstCp;
+
+  public RangeRepertoire () {
+    super (false);
+    byFirstCp = new TreeMap<Integer, Group> ();
+    byFirstCp.put (0x0000, new Group (0x0000, 0x10ffff));
+  }
+
+  //----------------------------------------------------------------------------
+  protected Group groupAt (int cp) {
+    return byFirstCp.floorEntry (cp).getValue ();
+  }
+
+  protected void setGroup (Group r) {
+    byFirstCp.subMap (r.firstCp, true, r.lastCp, true).clear ();
+    byFirstCp.put (r.firstCp, r);
+  }
+
+  protected void extendGroup (Group r, int oldLastCp) {
+    byFirstCp.subMap (oldLastCp + 1, true, r.lastCp, true).clear ();
+  }
+
+  public void createBoundaryBefore (int cp) {
+    if (cp == 0 || cp >= 0x110000) {
+      return; }
+
+    Group r = groupAt (cp);
+    if (r.firstCp == cp) {
+      return; }
+
+    boundaries++;
+    Group rNew = new Group (cp, r.lastCp, r);
+    r.lastCp = cp - 1;
+    byFirstCp.put (cp, rNew);
+  }
+}
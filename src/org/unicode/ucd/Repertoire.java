@@ -34,32 +34,137 @@
 package org.unicode.ucd;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
-import javax.xml.transform.sax.TransformerHandler;
-
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class Repertoire implements Iterable<Group> {
 
+  // Whether create () should build a RangeRepertoire rather than an
+  // array-backed one; set by the 'storage' command of Ucd.main.
+  static boolean rangeStorage = false;
+
   // Indexed by code point; the group for that code point.
   protected Group[] groups;
 
+  // How long the last call to normalize took, in milliseconds.
+  protected long normalizeTime;
+
+  // The canonical instances of the values, filled by normalize.
+  protected ValuePool valuePool = new ValuePool ();
+
+  // The defaults which have been put but not stored yet, in the order
+  // they were put; pendingProperties is indexed by property ordinal.
+  // See putDefault.
+  protected List<PendingDefault> pendingDefaults = new ArrayList<PendingDefault> ();
+  protected boolean[] pendingProperties = new boolean [0];
+
+  // How many defaults have been stored, in how many passes.
+  protected int defaultsStored;
+  protected int defaultPasses;
+
+  // Where the attempts to reset a value are recorded; if null, they
+  // are printed as they are found.
+  protected Diagnostics diagnostics;
+
+  // The file whose values are being stored, for the diagnostics; the
+  // loading of a UCD sets it at each file.
+  protected String currentFile;
+
+  // How many ranges have been put, and how many group boundaries have
+  // been created; see LoadProfile.
+  protected long puts;
+  protected long boundaries;
+
+  // The properties which have been given values or defaults since the
+  // last takePropertiesPut, indexed by ordinal; see Ucd.populatedBy.
+  protected boolean[] propertiesPut = new boolean [0];
+
+  // For the properties given to keepReplaced, the values replaced by
+  // putObjectForced since the last takeReplaced, by code point; the
+  // first one only, null where there was none. See Ucd.replacedBy.
+  protected Map<Property, SortedMap<Integer, Object>> replaced
+    = new HashMap<Property, SortedMap<Integer, Object>> ();
+
 
   public Repertoire () {
-    Group g = new Group (0x0000, 0x10ffff);
+    this (true);
+  }
+
+  // For subclasses which maintain their own index from code points
+  // to groups, and do not need the array.
+  protected Repertoire (boolean withArray) {
+    if (withArray) {
+      Group g = new Group (0x0000, 0x10ffff);
+      groups = new Group [0x110000];
+      for (int i = 0; i < groups.length; i++) {
+        groups [i] = g; }}
+  }
+
+  public static Repertoire create () {
+    if (rangeStorage) {
+      return new RangeRepertoire (); }
+    return new Repertoire ();
+  }
+
+  // An immutable snapshot of this repertoire, for when it will only
+  // be read from now on.
+  public FrozenRepertoire freeze () {
+    return new FrozenRepertoire (this);
+  }
+
+  //----------------------------------------------------------------------------
+  // Access to the storage. Everything else in this class goes through
+  // those methods, so that subclasses can use a different representation.
+
+  protected Group groupAt (int cp) {
+    return groups [cp];
+  }
 
-    groups = new Group [0x110000];
-    for (int i = 0; i < groups.length; i++) {
-      groups [i] = g; }
+  // Make 'r' the group of all the code points from r.firstCp to r.lastCp.
+  protected void setGroup (Group r) {
+    Arrays.fill (groups, r.firstCp, r.lastCp + 1, r);
   }
 
+  // 'r', whose code points up to 'oldLastCp' are already its own, has
+  // been extended to r.lastCp; make it the group of the new ones.
+  protected void extendGroup (Group r, int oldLastCp) {
+    Arrays.fill (groups, oldLastCp + 1, r.lastCp + 1, r);
+  }
+
+  public void createBoundaryBefore (int cp) {
+    if (cp == 0 || cp >= groups.length) {
+      return; }
+
+    Group rBefore = groups [cp - 1];
+    Group rAfter = groups [cp];
+
+    if (rBefore == rAfter) {
+      boundaries++;
+      if (cp - rBefore.firstCp > rAfter.lastCp - cp) {
+        Group rNew = new Group (cp, rAfter.lastCp, rAfter);
+        for (int i = cp; i <= rAfter.lastCp; i++) {
+          groups [i] = rNew; }
+        rBefore.lastCp = cp - 1; }
+      else {
+        Group rNew = new Group (rBefore.firstCp, cp - 1, rBefore);
+        for (int i = rBefore.firstCp; i < cp; i++) {
+          groups [i] = rNew; }
+        rAfter.firstCp = cp; }}
+  }
+
+  //----------------------------------------------------------------------------
+
   public class GroupIterator implements Iterator<Group> {
     int currentCp;
     int lastCp;
@@ -73,7 +178,7 @@ public class Repertoire implements Iterable<Group> {
     }
 
     public Group next () {
-      Group r = groups [currentCp];
+      Group r = groupAt (currentCp);
       currentCp = r.lastCp + 1;
       return r;
     }
@@ -94,67 +199,258 @@ public class Repertoire implements Iterable<Group> {
   }
 
   public Iterator<Group> iterator () {
-    return new GroupIterator (0, groups.length - 1);
+    storeDefaults ();
+    return new GroupIterator (0, 0x10ffff);
   }
 
   public Iterable<Group> onSubset (int firstCp, int lastCp) {
+    storeDefaults ();
     return new IterableGroupSubset (firstCp, lastCp);
   }
 
   public String get (int cp, Property p) {
-    return groups [cp].get (p);
+    storeDefaults ();
+    return groupAt (cp).get (p);
   }
 
   public Object getObject (int cp, Property p) {
-    return groups [cp].getObject (p);
+    storeDefaults ();
+    return groupAt (cp).getObject (p);
   }
 
+  // The value is converted once, so that all the groups in the range
+  // get the same object; see normalize.
   public void put (int firstCp, int lastCp, Property p, String v) {
-    int cp = firstCp;
-    while (cp <= lastCp) {
-      createBoundaryBefore (cp);
-      if (groups [cp].lastCp > lastCp) {
-        createBoundaryBefore (lastCp + 1); }
-      groups [cp].put (p, v);
-      cp = groups [cp].lastCp + 1; }
+    putObject (firstCp, lastCp, p, CodePoints.valueOf (p, v));
   }
 
   public void putObject (int firstCp, int lastCp, Property p, Object v) {
+    if (isPending (p)) {
+      storeDefaults (); }
+    puts++;
+    markPut (p);
+    putRange (firstCp, lastCp, p, v);
+  }
+
+  private void putRange (int firstCp, int lastCp, Property p, Object v) {
     int cp = firstCp;
     while (cp <= lastCp) {
       createBoundaryBefore (cp);
-      if (groups [cp].lastCp > lastCp) {
+      if (groupAt (cp).lastCp > lastCp) {
         createBoundaryBefore (lastCp + 1); }
-      groups [cp].putObject (p, v);
-      cp = groups [cp].lastCp + 1; }
+      tryPutObject (groupAt (cp), p, v);
+      cp = groupAt (cp).lastCp + 1; }
+  }
+
+  protected void tryPutObject (Group r, Property p, Object v) {
+    Object currentValue = r.tryPutObject (p, v);
+    if (currentValue == null) {
+      return; }
+    if (diagnostics == null) {
+      System.err.println ("@@@ Attempt to reset " + p.getShortName () + " from " + currentValue
+                          + " to " + v + " on " + r + " (ignored)"); }
+    else {
+      diagnostics.record (Diagnostics.Kind.RESET_IGNORED, currentFile, -1, r.firstCp, p,
+                          "from " + currentValue + " to " + v); }
+  }
+
+  // Store all the values of 'column', as put would for each run, in a
+  // single sweep in code point order. The runs are first made disjoint
+  // by the column, the first one in the file winning as with put. The
+  // storage is then split only at the ends of each run, and not at
+  // all between adjacent runs, where the previous run left a boundary.
+  // The parts of runs that lost are put last, only to report them.
+  public void applyBatch (PropertyColumn column) {
+    Property p = column.property;
+    if (isPending (p)) {
+      storeDefaults (); }
+    puts += column.size ();
+    markPut (p);
+    PropertyColumn lost = column.resolveOverlaps ();
+
+    int boundary = -1;
+    for (int i = 0; i < column.size (); i++) {
+      int firstCp = column.firstCp (i);
+      int lastCp = column.lastCp (i);
+      Object v = column.value (i);
+
+      if (firstCp != boundary) {
+        createBoundaryBefore (firstCp); }
+      createBoundaryBefore (lastCp + 1);
+      boundary = lastCp + 1;
+      Group r = groupAt (firstCp);
+      tryPutObject (r, p, v);
+      while (r.lastCp < lastCp) {
+        r = groupAt (r.lastCp + 1);
+        tryPutObject (r, p, v); }}
+
+    if (lost != null) {
+      for (int i = 0; i < lost.size (); i++) {
+        putRange (lost.firstCp (i), lost.lastCp (i), p, lost.value (i)); }}
   }
 
   public void putForced (int firstCp, int lastCp, Property p, String v) {
+    putObjectForced (firstCp, lastCp, p, CodePoints.valueOf (p, v));
+  }
+
+  public void putObjectForced (int firstCp, int lastCp, Property p, Object o) {
+    if (isPending (p)) {
+      storeDefaults (); }
+    puts++;
+    markPut (p);
     int cp = firstCp;
     while (cp <= lastCp) {
       createBoundaryBefore (cp);
-      if (groups [cp].lastCp > lastCp) {
+      if (groupAt (cp).lastCp > lastCp) {
         createBoundaryBefore (lastCp + 1); }
-      groups [cp].putForced (p, v);
-      cp = groups [cp].lastCp + 1; }
+      Group r = groupAt (cp);
+      SortedMap<Integer, Object> kept = replaced.get (p);
+      if (kept != null) {
+        for (int c = r.firstCp; c <= r.lastCp; c++) {
+          if (! kept.containsKey (c)) {
+            kept.put (c, r.getObject (p)); }}}
+      r.putObjectForced (p, o);
+      cp = r.lastCp + 1; }
+  }
+
+  /** Makes putObjectForced keep the values it replaces for 'ps', by
+   *  code point; meant for the few code points where one file
+   *  overrides the values of another. */
+  public void keepReplaced (Property... ps) {
+    for (Property p : ps) {
+      replaced.put (p, new TreeMap<Integer, Object> ()); }
+  }
+
+  /** Returns the values replaced by putObjectForced since the last
+   *  call, for the properties which got some, and forgets them. */
+  public Map<Property, SortedMap<Integer, Object>> takeReplaced () {
+    Map<Property, SortedMap<Integer, Object>> result = new HashMap<Property, SortedMap<Integer, Object>> ();
+    for (Map.Entry<Property, SortedMap<Integer, Object>> e : replaced.entrySet ()) {
+      if (! e.getValue ().isEmpty ()) {
+        result.put (e.getKey (), e.getValue ());
+        e.setValue (new TreeMap<Integer, Object> ()); }}
+    return result;
   }
 
   public interface DefaultSetter {
     public void process (Group r);
   }
 
+  protected void markPut (Property p) {
+    int o = p.getOrdinal ();
+    if (o >= propertiesPut.length) {
+      propertiesPut = Arrays.copyOf (propertiesPut, Property.count ()); }
+    propertiesPut [o] = true;
+  }
+
+  /** Returns the properties which have been given values or defaults
+   *  since the last call, and forgets them. */
+  public Set<Property> takePropertiesPut () {
+    Set<Property> result = new HashSet<Property> ();
+    for (int i = 0; i < propertiesPut.length; i++) {
+      if (propertiesPut [i]) {
+        result.add (Property.fromOrdinal (i)); }}
+    propertiesPut = new boolean [0];
+    return result;
+  }
+
+  //----------------------------------------------------------------------------
+  // Defaults are not stored when they are put. They are kept until the
+  // repertoire is read, or a value is put for a property with a pending
+  // default, and then stored all at once, in a single pass over the
+  // groups. Until then, nothing can tell the difference; but the
+  // defaults put by a series of loaders cost a single pass rather than
+  // one each.
+
   public void putDefault (Property p, String v) {
-    for (Group r : groups) {
-      r.putDefault (p, v); }
+    putDefault (0, 0x10ffff, p, v);
   }
 
-  public void putDefault (DefaultSetter s) {
-    for (Group r : groups) {
+  /** Gives the value v to the code points from firstCp to lastCp
+   *  which do not have a value for p, as a @missing line does.
+   *  Like putDefault, the first default put for a code point wins.
+   */
+  public void putDefault (int firstCp, int lastCp, Property p, String v) {
+    addDefault (firstCp, lastCp, p, CodePoints.valueOf (p, v));
+  }
+
+  public void putDefaults (Map<Property, String> defaults) {
+    for (Map.Entry<Property, String> e : defaults.entrySet ()) {
+      addDefault (0, 0x10ffff, e.getKey (), CodePoints.valueOf (e.getKey (), e.getValue ())); }
+  }
+
+  static final class PendingDefault {
+    final int firstCp;
+    final int lastCp;
+    final Property p;
+    final Object v;
+
+    PendingDefault (int firstCp, int lastCp, Property p, Object v) {
+      this.firstCp = firstCp;
+      this.lastCp = lastCp;
+      this.p = p;
+      this.v = v;
+    }
+  }
+
+  protected void addDefault (int firstCp, int lastCp, Property p, Object v) {
+    markPut (p);
+    int o = p.getOrdinal ();
+    if (o >= pendingProperties.length) {
+      pendingProperties = Arrays.copyOf (pendingProperties, Property.count ()); }
+    pendingProperties [o] = true;
+    pendingDefaults.add (new PendingDefault (firstCp, lastCp, p, v));
+  }
+
+  protected boolean isPending (Property p) {
+    int o = p.getOrdinal ();
+    return o < pendingProperties.length && pendingProperties [o];
+  }
+
+  /** Stores the pending defaults. */
+  protected void storeDefaults () {
+    if (pendingDefaults.isEmpty ()) {
+      return; }
+    List<PendingDefault> defaults = pendingDefaults;
+    pendingDefaults = new ArrayList<PendingDefault> ();
+    pendingProperties = new boolean [0];
+
+    // Each group is then either inside or outside of each range.
+    for (PendingDefault d : defaults) {
+      createBoundaryBefore (d.firstCp);
+      createBoundaryBefore (d.lastCp + 1); }
+
+    PendingDefault[] all = defaults.toArray (new PendingDefault [defaults.size ()]);
+    GroupIterator it = new GroupIterator (0, 0x10ffff);
+    while (it.hasNext ()) {
+      Group r = it.next ();
+      for (PendingDefault d : all) {
+        if (d.firstCp <= r.firstCp && r.lastCp <= d.lastCp) {
+          r.putDefaultObject (d.p, d.v); }}}
+
+    defaultsStored += all.length;
+    defaultPasses++;
+  }
+
+  // 'ps' are the properties to which s may give values.
+  public void putDefault (DefaultSetter s, Property... ps) {
+    for (Property p : ps) {
+      markPut (p); }
+    for (Group r : this) {
       s.process (r); }
   }
 
+  // The properties whose value is replaced by "#" by normalize, when
+  // it is the code point itself.
+  static final Property[] mappedToSelf = {
+    Property.dm, Property.suc, Property.slc, Property.stc, Property.uc,
+    Property.lc, Property.tc, Property.scf, Property.cf };
+
   public void normalize () {
+    storeDefaults ();
+    long startTime = System.currentTimeMillis ();
     Group previous = null;
+    int previousLastCp = -1;
 
     for (Group r : this) {
 
@@ -164,65 +460,43 @@ public class Repertoire implements Iterable<Group> {
         if (na != null && na.contains (cp)) {
           r.putForced (Property.na, na.replace (cp, "#")); }
 
-        if (cp.equals (r.get (Property.dm))) {
-          r.putForced (Property.dm, "#"); }
-
-        if (cp.equals (r.get (Property.suc))) {
-          r.putForced (Property.suc, "#"); }
-        if (cp.equals (r.get (Property.slc))) {
-          r.putForced (Property.slc, "#"); }
-        if (cp.equals (r.get (Property.stc))) {
-          r.putForced (Property.stc, "#"); }
-        if (cp.equals (r.get (Property.uc))) {
-          r.putForced (Property.uc, "#"); }
-        if (cp.equals (r.get (Property.lc))) {
-          r.putForced (Property.lc, "#"); }
-        if (cp.equals (r.get (Property.tc))) {
-          r.putForced (Property.tc, "#"); }
-        if (cp.equals (r.get (Property.scf))) {
-          r.putForced (Property.scf, "#"); }
-        if (cp.equals (r.get (Property.cf))) {
-          r.putForced (Property.cf, "#"); }}
+        for (Property p : mappedToSelf) {
+          Object v = r.getObject (p);
+          if (v instanceof CodePoints ? ((CodePoints) v).is (r.firstCp) : cp.equals (v)) {
+            r.putObjectForced (p, CodePoints.SELF); }}}
 
+      // A run of groups with the same properties is absorbed by its
+      // first group, and the storage is updated once for the whole run,
+      // for the code points of the absorbed groups only.
+      // The iteration is not disturbed, as it goes by code point.
       if (previous != null && previous.sameProperties (r)) {
-        if (previous.lastCp - previous.firstCp > r.lastCp - r.firstCp) {
-          for (int cp = r.firstCp; cp <= r.lastCp; cp++) {
-            groups [cp] = previous; }
-          r.firstCp = previous.firstCp;
-          previous.lastCp = r.lastCp; }
-
-        else {
-          for (int cp = previous.firstCp; cp <= previous.lastCp; cp++) {
-            groups [cp] = r; }
-          r.firstCp = previous.firstCp;
-          previous.lastCp = r.lastCp;
-          previous = r; }}
+        previous.lastCp = r.lastCp; }
       else {
-        previous = r; }}
-  }
-
-  public void createBoundaryBefore (int cp) {
-    if (cp == 0 || cp >= groups.length) {
-      return; }
+        if (previous != null && previous.lastCp != previousLastCp) {
+          extendGroup (previous, previousLastCp); }
+        previous = r;
+        previousLastCp = r.lastCp; }}
+    if (previous != null && previous.lastCp != previousLastCp) {
+      extendGroup (previous, previousLastCp); }
+
+    // Merging compares values by identity, so the values are made
+    // canonical only now; doing it as they are put would merge
+    // code points which have been given their values separately.
+    for (Group r : this) {
+      r.internValues (valuePool); }
+    valuePool.done ();
 
-    Group rBefore = groups [cp - 1];
-    Group rAfter = groups [cp];
+    // Groups that are not adjacent may still have equal values; let
+    // them share the same array.
+    Map<List<Object>, Group> pool = new HashMap<List<Object>, Group> ();
+    for (Group r : this) {
+      r.shareValues (pool); }
 
-    if (rBefore == rAfter) {
-      if (cp - rBefore.firstCp > rAfter.lastCp - cp) {
-        Group rNew = new Group (cp, rAfter.lastCp, rAfter);
-        for (int i = cp; i <= rAfter.lastCp; i++) {
-          groups [i] = rNew; }
-        rBefore.lastCp = cp - 1; }
-      else {
-        Group rNew = new Group (rBefore.firstCp, cp - 1, rBefore);
-        for (int i = rBefore.firstCp; i < cp; i++) {
-          groups [i] = rNew; }
-        rAfter.firstCp = cp; }}
+    normalizeTime = System.currentTimeMillis () - startTime;
   }
 
   public void remove (Property p) {
-    for (Group r : groups) {
+    for (Group r : this) {
       r.remove (p); }
   }
 
@@ -230,30 +504,101 @@ public class Repertoire implements Iterable<Group> {
 
   final static char[] space = {' '};
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at, int explodeLimit, Repertoire groups) throws Exception  {
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
+  public void toXML (XMLWriter w, String elt, int explodeLimit, Repertoire groups) throws Exception  {
+    w.startElement (elt); {
       if (groups == null) {
         for (Group r : this) {
-          r.toXMLElements (ch, explodeLimit, null); }}
+          r.toXMLElements (w, explodeLimit, null); }}
 
       else {
         for (Group g : groups) {
-          AttributesImpl at2 = new AttributesImpl ();
-          g.toXMLAttributes (at2);
-          ch.startElement (Ucd.NAMESPACE, "group", "group", at2); {
+          String[] groupValues = g.attributeValues ();
+          w.startElement ("group"); {
+            g.toXMLAttributes (w);
             for (Group r : this.onSubset (g.firstCp, g.lastCp)) {
-              r.toXMLElements (ch, explodeLimit, g); }
-            ch.endElement (Ucd.NAMESPACE, "group", "group"); }}}
+              r.toXMLElements (w, explodeLimit, g, groupValues); }
+            w.endElement ("group"); }}}
 
-      ch.endElement (Ucd.NAMESPACE, elt, elt); }
+      w.endElement (elt); }
   }
 
-  public Group rangeFromXML (String elt, Attributes at, Map<Property, String> gr) {
+  /** A new repertoire with the values of the properties in 'keep'
+   *  only, except at the code points of 'at': there, a property of
+   *  'at' has the value given, none for null, whether it is in 'keep'
+   *  or not. A group keeps its type if it keeps some other property;
+   *  the groups which keep nothing are left empty.
+   *  Adjacent groups which differed only by properties not kept are
+   *  merged, as normalize would have done had those properties never
+   *  been put. Groups which were equal stay apart: normalize had kept
+   *  them apart, as they were given their values separately.
+   */
+  public Repertoire project (Set<Property> keep, Map<Property, SortedMap<Integer, Object>> at) {
+    List<Property> kept = new ArrayList<Property> ();
+    for (Property p : Property.values ()) {
+      if (p != Property.type && (keep.contains (p) || at.containsKey (p))) {
+        kept.add (p); }}
+    TreeSet<Integer> atCps = new TreeSet<Integer> ();
+    for (SortedMap<Integer, Object> values : at.values ()) {
+      atCps.addAll (values.keySet ()); }
+
+    Repertoire result = create ();
+    Group previous = null;
+    Group previousSource = null;
+    for (Group r : this) {
+      int firstCp = r.firstCp;
+      while (firstCp <= r.lastCp) {
+        // the code points of 'at' are pieces of their own
+        Integer next = atCps.ceiling (firstCp);
+        boolean single = next != null && next == firstCp;
+        int lastCp = r.lastCp;
+        if (single) {
+          lastCp = firstCp; }
+        else if (next != null && next <= r.lastCp) {
+          lastCp = next - 1; }
+
+        Group g = null;
+        for (Property p : kept) {
+          Object v = keep.contains (p) ? r.getObject (p) : null;
+          SortedMap<Integer, Object> values = at.get (p);
+          if (single && values != null && values.containsKey (firstCp)) {
+            v = values.get (firstCp); }
+          if (v != null) {
+            if (g == null) {
+              g = new Group (firstCp, lastCp); }
+            g.putObjectForced (p, v); }}
+        firstCp = lastCp + 1;
+        if (g == null) {
+          addProjected (result, previous);
+          previous = null;
+          continue; }
+        Object type = r.getObject (Property.type);
+        if (type != null) {
+          g.putObjectForced (Property.type, type); }
+
+        if (previous != null && previous.sameProperties (g)
+            && (previousSource == r || ! previousSource.sameProperties (r))) {
+          previous.lastCp = g.lastCp; }
+        else {
+          addProjected (result, previous);
+          previous = g; }
+        previousSource = r; }}
+    addProjected (result, previous);
+
+    return result;
+  }
+
+  private static void addProjected (Repertoire result, Group g) {
+    if (g != null) {
+      result.createBoundaryBefore (g.firstCp);
+      result.createBoundaryBefore (g.lastCp + 1);
+      result.setGroup (g); }
+  }
+
+  public Group rangeFromXML (String elt, Attributes at, Map<Property, Object> gr) {
     Group r = Group.fromXML (elt, at, gr);
     createBoundaryBefore (r.firstCp);
     createBoundaryBefore (r.lastCp + 1);
-    for (int cp = r.firstCp; cp <= r.lastCp; cp++) {
-      groups [cp] = r; }
+    setGroup (r);
     return r;
   }
 
@@ -261,7 +606,7 @@ public class Repertoire implements Iterable<Group> {
   public Set<Property> collectProperties () {
     Set<Property> properties = new HashSet<Property> ();
 
-    for (Group r : groups) {
+    for (Group r : this) {
       r.collectProperties (properties); }
 
     return properties;
@@ -282,6 +627,9 @@ public class Repertoire implements Iterable<Group> {
 
     boolean ignoreCodePoint[] = new boolean [0x110000];
 
+    // The detail lines are built here rather than by concatenation.
+    StringBuilder line = new StringBuilder ();
+
     out.println ();
     out.println ("================================ changed type ");
 
@@ -311,7 +659,10 @@ public class Repertoire implements Iterable<Group> {
         typeDc.changed (); }
 
       if (detailsLevel >= 1) {
-        out.println (Ucd.toU (cp) + "\t" + olderType + "\t->\t" + newerType + "\t" + getUsefulCharacterName (cp)); }}
+        line.setLength (0);
+        Ucd.appendU (line, cp).append ('\t').append (olderType).append ("\t->\t")
+          .append (newerType).append ('\t').append (getUsefulCharacterName (cp));
+        out.println (line); }}
 
     if (detailsLevel >= 1) {
       out.println (""); }
@@ -374,11 +725,19 @@ public class Repertoire implements Iterable<Group> {
           dc.changed (); }
 
         if (detailsLevel >= 1) {
-          out.println (p.getShortName () + "\t" + Ucd.toU (cp) + "\t"
-                        + (olderValue == null ? "<undefined>" : ("'" + olderValue + "'"))
-                        + "\t->\t"
-                        + (newerValue == null ? "<undefined>" : ("'" + newerValue + "'"))
-                        + "\t" + getUsefulCharacterName (cp)); }}
+          line.setLength (0);
+          Ucd.appendU (line.append (p.getShortName ()).append ('\t'), cp).append ('\t');
+          if (olderValue == null) {
+            line.append ("<undefined>"); }
+          else {
+            line.append ('\'').append (olderValue).append ('\''); }
+          line.append ("\t->\t");
+          if (newerValue == null) {
+            line.append ("<undefined>"); }
+          else {
+            line.append ('\'').append (newerValue).append ('\''); }
+          line.append ('\t').append (getUsefulCharacterName (cp));
+          out.println (line); }}
 
       if (detailsLevel >= 1) {
         out.println (""); }
@@ -453,13 +812,16 @@ public class Repertoire implements Iterable<Group> {
     out.println ("     " + nbPropsTotal + " properties assignments (min = "
                  + minNbPropsOnARange
                  + ", max = " + maxNbPropsOnARange + ")");
+    out.println ("     " + normalizeTime + " ms in the last normalize");
+    out.println ("     " + defaultsStored + " defaults stored in " + defaultPasses + " passes");
+    valuePool.internalStats (out);
   }
 
   public Set<String> getPropertyValues (Property p) {
 
     Set<String> s = new TreeSet<String> ();
 
-    for (Group r : groups) {
+    for (Group r : this) {
       String x = r.get (p);
       if (x != null) {
         s.add (x); }}
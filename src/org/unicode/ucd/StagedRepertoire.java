@@ -0,0 +1,179 @@
+// COPYRIGHT AND PERMISSION NOTICE
+//
+// Copyright 2006-2016 Unicode Inc.
+//
+// All rights reserved.
+//
+// Permission is hereby granted, free of charge, to any person
+// obtaining a copy of this software and associated documentation
+// files (the "Software"), to deal in the Software without
+// restriction, including without limitation the rights to use, copy,
+// modify, merge, publish, distribute, and/or sell copies of the
+// Software, and to permit persons to whom the Software is furnished
+// to do so, provided that the above copyright notice(s) and this
+// permission notice appear in all copies of the Software and that
+// both the above copyright notice(s) and this permission notice
+// appear in supporting documentation.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT OF THIRD PARTY RIGHTS. IN NO EVENT SHALL THE
+// COPYRIGHT HOLDER OR HOLDERS INCLUDED IN THIS NOTICE BE LIABLE FOR
+// ANY CLAIM, OR ANY SPECIAL INDIRECT OR CONSEQUENTIAL DAMAGES, OR ANY
+// DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS,
+// WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS
+// ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE
+// OF THIS SOFTWARE.
+//
+// Except as contained in this notice, the name of a copyright holder
+// shall not be used in advertising or otherwise to promote the sale,
+// use or other dealings in this Software without prior written
+// authorization of the copyright holder.
+
+
+package org.unicode.ucd;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Records the changes a loader makes to a repertoire, so that a file
+ *  can be parsed on another thread and its changes made to the real
+ *  repertoire later, with replay. The calls are replayed in the order
+ *  they were made, with the same value objects, so the result is the
+ *  same as if the loader had worked on the real repertoire.
+ *  A staged repertoire cannot be read: a loader which reads the
+ *  repertoire while it parses must run on the real one.
+ */
+
+public class StagedRepertoire extends Repertoire {
+
+  static final int PUT = 0;
+  static final int PUT_FORCED = 1;
+  static final int BATCH = 2;
+  static final int DEFAULT = 3;
+  static final int DEFAULTS = 4;
+  static final int SETTER = 5;
+
+  protected byte[] kinds = new byte [256];
+  protected int[] firstCps = new int [256];
+  protected int[] lastCps = new int [256];
+  protected Property[] properties = new Property [256];
+  protected Object[] values = new Object [256];
+  protected int size = 0;
+
+  public StagedRepertoire () {
+    super (false);
+  }
+
+  void add (int kind, int firstCp, int lastCp, Property p, Object v) {
+    if (size == kinds.length) {
+      kinds = Arrays.copyOf (kinds, 2 * size);
+      firstCps = Arrays.copyOf (firstCps, 2 * size);
+      lastCps = Arrays.copyOf (lastCps, 2 * size);
+      properties = Arrays.copyOf (properties, 2 * size);
+      values = Arrays.copyOf (values, 2 * size); }
+    kinds [size] = (byte) kind;
+    firstCps [size] = firstCp;
+    lastCps [size] = lastCp;
+    properties [size] = p;
+    values [size] = v;
+    size++;
+  }
+
+  /** Makes the recorded changes to 'target'. */
+  @SuppressWarnings("unchecked")
+  public void replay (Repertoire target) {
+    for (int i = 0; i < size; i++) {
+      switch (kinds [i]) {
+        case PUT:
+          target.putObject (firstCps [i], lastCps [i], properties [i], values [i]);
+          break;
+        case PUT_FORCED:
+          target.putObjectForced (firstCps [i], lastCps [i], properties [i], values [i]);
+          break;
+        case BATCH:
+          target.applyBatch ((PropertyColumn) values [i]);
+          break;
+        case DEFAULT:
+          target.putDefault (firstCps [i], lastCps [i], properties [i], (String) values [i]);
+          break;
+        case DEFAULTS:
+          target.putDefaults ((Map<Property, String>) values [i]);
+          break;
+        case SETTER:
+          Object[] setter = (Object[]) values [i];
+          target.putDefault ((DefaultSetter) setter [0], (Property[]) setter [1]);
+          break; }}
+  }
+
+  public int size () {
+    return size;
+  }
+
+  //----------------------------------------------------------------------------
+  // The values are converted here, on the thread of the loader.
+
+  public void put (int firstCp, int lastCp, Property p, String v) {
+    add (PUT, firstCp, lastCp, p, CodePoints.valueOf (p, v));
+  }
+
+  public void putObject (int firstCp, int lastCp, Property p, Object v) {
+    add (PUT, firstCp, lastCp, p, v);
+  }
+
+  public void putForced (int firstCp, int lastCp, Property p, String v) {
+    add (PUT_FORCED, firstCp, lastCp, p, CodePoints.valueOf (p, v));
+  }
+
+  public void putObjectForced (int firstCp, int lastCp, Property p, Object v) {
+    add (PUT_FORCED, firstCp, lastCp, p, v);
+  }
+
+  public void applyBatch (PropertyColumn column) {
+    add (BATCH, 0, 0, column.property, column);
+  }
+
+  public void putDefault (Property p, String v) {
+    add (DEFAULT, 0, 0x10ffff, p, v);
+  }
+
+  public void putDefault (int firstCp, int lastCp, Property p, String v) {
+    add (DEFAULT, firstCp, lastCp, p, v);
+  }
+
+  // The loader may reuse its map once the call returns.
+  public void putDefaults (Map<Property, String> defaults) {
+    add (DEFAULTS, 0, 0, null, new LinkedHashMap<Property, String> (defaults));
+  }
+
+  // The setter typically reads values set by earlier files, such as
+  // gc; it runs at replay, when those values are in.
+  @Override
+  public void putDefault (DefaultSetter s, Property... ps) {
+    add (SETTER, 0, 0, null, new Object[] {s, ps});
+  }
+
+  //----------------------------------------------------------------------------
+
+  protected Group groupAt (int cp) {
+    throw new IllegalStateException ("a staged repertoire cannot be read");
+  }
+
+  protected void setGroup (Group r) {
+    throw new IllegalStateException ("a staged repertoire has no groups");
+  }
+
+  protected void extendGroup (Group r, int oldLastCp) {
+    throw new IllegalStateException ("a staged repertoire has no groups");
+  }
+
+  public void createBoundaryBefore (int cp) {
+    throw new IllegalStateException ("a staged repertoire has no groups");
+  }
+
+  public void normalize () {
+    throw new IllegalStateException ("a staged repertoire cannot be normalized");
+  }
+}
@@ -33,10 +33,8 @@
 
 package org.unicode.ucd;
 
-import javax.xml.transform.sax.TransformerHandler;
 
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class StandardizedVariant {
   String sequence;
@@ -76,13 +74,12 @@ public class StandardizedVariant {
     return new StandardizedVariant (sequence, description, condition);
   }
 
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
-    at.addAttribute ("", "cps", "cps", "CDATA", sequence);
-    at.addAttribute ("", "desc", "desc", "CDATA", description);
-    at.addAttribute ("", "when", "when", "CDATA", condition);
-
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
-      ch.endElement (Ucd.NAMESPACE, elt, elt); }
+  public void toXML (XMLWriter w, String elt) throws Exception {
+    w.startElement (elt); {
+      w.attribute ("cps", sequence);
+      w.attribute ("desc", description);
+      w.attribute ("when", condition);
+      w.endElement (elt); }
   }
 
   //----------------------------------------------------------------------------
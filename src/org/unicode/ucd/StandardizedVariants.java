@@ -39,10 +39,7 @@ import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
-import javax.xml.transform.sax.TransformerHandler;
-
 import org.xml.sax.Attributes;
-import org.xml.sax.helpers.AttributesImpl;
 
 public class StandardizedVariants {
   // The variants, in the order in which they are inserted
@@ -71,15 +68,14 @@ public class StandardizedVariants {
       add (StandardizedVariant.fromXML (at)); }
   }
   
-  public void toXML (TransformerHandler ch, String elt, AttributesImpl at) throws Exception {
+  public void toXML (XMLWriter w, String elt) throws Exception {
     if (variants.isEmpty ()) {
       return; }
     
-    ch.startElement (Ucd.NAMESPACE, elt, elt, at); {
+    w.startElement (elt); {
       for (StandardizedVariant v : variants) {
-        AttributesImpl at2 = new AttributesImpl ();
-        v.toXML (ch, "standardized-variant", at2); }
-      ch.endElement(Ucd.NAMESPACE, elt, elt); }
+        v.toXML (w, "standardized-variant"); }
+      w.endElement (elt); }
   }
   
   //----------------------------------------------------------------------------
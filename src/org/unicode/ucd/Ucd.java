@@ -33,35 +33,47 @@
 
 package org.unicode.ucd;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.sax.SAXSource;
-import javax.xml.transform.sax.SAXTransformerFactory;
-import javax.xml.transform.sax.TransformerHandler;
-import javax.xml.transform.stream.StreamResult;
 
+import org.unicode.ucd.Parser.FieldLoader;
+import org.unicode.ucd.Parser.Fields;
 import org.unicode.ucd.Parser.Loader;
 import org.unicode.ucd.Parser.LoaderWithCodePoints;
+import org.unicode.ucd.Parser.Missing;
 import org.unicode.ucd.Repertoire.DefaultSetter;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
-import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
 
 public class Ucd {
@@ -72,7 +84,51 @@ public class Ucd {
   //----------------------------------------------------------------------------
 
   static public String toU (int n) {
-    return toU (Integer.toHexString (n));
+    if (n < 0 || n > 0xFFFFFF) {
+      return toU (Integer.toHexString (n)); }
+    byte[] b = new byte [6];
+    int length = appendU (n, b, 0);
+    char[] c = new char [length];
+    for (int i = 0; i < length; i++) {
+      c [i] = (char) b [i]; }
+    return new String (c);
+  }
+
+  // The two upper case hex digits of each byte value, in ASCII.
+  static final byte[] hexPairs = new byte [512];
+  static {
+    String digits = "0123456789ABCDEF";
+    for (int i = 0; i < 256; i++) {
+      hexPairs [2 * i] = (byte) digits.charAt (i >> 4);
+      hexPairs [2 * i + 1] = (byte) digits.charAt (i & 0xF); }
+  }
+
+  /** Writes n as toU does, in ASCII, at b [pos], and returns the
+   *  position after the last digit; n must be between 0 and 0xFFFFFF.
+   *  The other forms of toU and appendU are built on this one. */
+  static public int appendU (int n, byte[] b, int pos) {
+    if (n > 0xFFFF) {
+      int h = n >> 16;
+      if (h > 0xF) {
+        b [pos++] = hexPairs [2 * h]; }
+      b [pos++] = hexPairs [2 * h + 1]; }
+    int hi = (n >> 8) & 0xFF;
+    int lo = n & 0xFF;
+    b [pos++] = hexPairs [2 * hi];
+    b [pos++] = hexPairs [2 * hi + 1];
+    b [pos++] = hexPairs [2 * lo];
+    b [pos++] = hexPairs [2 * lo + 1];
+    return pos;
+  }
+
+  static public StringBuilder appendU (StringBuilder sb, int n) {
+    if (n < 0 || n > 0xFFFFFF) {
+      return sb.append (toU (n)); }
+    byte[] b = new byte [6];
+    int length = appendU (n, b, 0);
+    for (int i = 0; i < length; i++) {
+      sb.append ((char) b [i]); }
+    return sb;
   }
 
   static public String toU (String s) {
@@ -96,9 +152,31 @@ public class Ucd {
   public EmojiSources emojiSources;
   public DoNotEmit doNotEmit;
 
+  // The problems found while loading from the UCD files.
+  public Diagnostics diagnostics = new Diagnostics ();
+
+  // Where the work went while loading from the UCD files; null for
+  // a Ucd loaded otherwise.
+  public LoadProfile loadProfile;
+
+  // The pool of loadInParallel while it runs, on which parseUnihan
+  // also parses; null when loading sequentially.
+  private ExecutorService loadPool;
+
+  // The files from which each property got values or defaults, when
+  // loading from the UCD files.
+  public Map<Property, Set<UcdFile>> populatedBy = new HashMap<Property, Set<UcdFile>> ();
+
+  // The values of nt and nv which the Unihan files forced over those
+  // of UnicodeData.txt, by code point, when loading both; see project.
+  public Map<UcdFile, Map<Property, SortedMap<Integer, Object>>> replacedBy
+    = new LinkedHashMap<UcdFile, Map<Property, SortedMap<Integer, Object>>> ();
+
   //----------------------------------------------------------------------------
+  // The repertoire is only read after it has been normalized.
   void normalize () {
     repertoire.normalize ();
+    repertoire = repertoire.freeze ();
   }
 
   //----------------------------------------------------------------------------
@@ -155,7 +233,8 @@ public class Ucd {
             else if ("vertical".equals (tag)) {   dt = "vert"; }
             else if ("wide".equals (tag))     {   dt = "wide"; }
             else {
-              System.err.println ("Unknown compatibility tag: '" + tag + "'");
+              diagnostics.record (Diagnostics.Kind.UNKNOWN_VALUE, "UnicodeData.txt", currentLine, -1,
+                                  Property.dt, "compatibility tag <" + tag + ">");
               dt = "?"; }
 
             dm = fields [5].substring (fields [5].indexOf ('>') + 2); }
@@ -275,25 +354,27 @@ public class Ucd {
     if (version.isAtLeast (Version.V3_1_0)) {
       repertoire.put (0xfdd0, 0xfdef, Property.type, "noncharacter"); }
 
-    repertoire.putDefault (Property.type, "reserved");
-    repertoire.putDefault (Property.na, "");
-    repertoire.putDefault (Property.gc, "Cn");
-    repertoire.putDefault (Property.ccc, "0");
-    //repertoire.putDefault (Property.bc, "L");  // the true values are in extracted/DerivedBidi.txt
-    repertoire.putDefault (Property.dt, "none");
-    repertoire.putDefault (Property.dm, "#");
-    repertoire.putDefault (Property.nt, "None");
+    Map<Property, String> defaults = new LinkedHashMap<Property, String> ();
+    defaults.put (Property.type, "reserved");
+    defaults.put (Property.na, "");
+    defaults.put (Property.gc, "Cn");
+    defaults.put (Property.ccc, "0");
+    //defaults.put (Property.bc, "L");  // the true values are in extracted/DerivedBidi.txt
+    defaults.put (Property.dt, "none");
+    defaults.put (Property.dm, "#");
+    defaults.put (Property.nt, "None");
 
-    repertoire.putDefault (Property.nv, (v.isAtLeast (Version.V5_1_0)) ? "NaN" : "");
+    defaults.put (Property.nv, (v.isAtLeast (Version.V5_1_0)) ? "NaN" : "");
 
-    repertoire.putDefault (Property.bidi_m, "N");
+    defaults.put (Property.bidi_m, "N");
 
-    repertoire.putDefault (Property.na1, "");
+    defaults.put (Property.na1, "");
 
-    repertoire.putDefault (Property.isc, "");
-    repertoire.putDefault (Property.suc, "#");
-    repertoire.putDefault (Property.slc, "#");
-    repertoire.putDefault (Property.stc, "#");
+    defaults.put (Property.isc, "");
+    defaults.put (Property.suc, "#");
+    defaults.put (Property.slc, "#");
+    defaults.put (Property.stc, "#");
+    repertoire.putDefaults (defaults);
   }
 
   //----------------------------------------------------------------------------
@@ -433,17 +514,103 @@ public class Ucd {
     jgMap.put ("VERTICAL TAIL",                      "Vertical_Tail");
   }
 
+  // The short names of the values of the enumerated properties, by
+  // the loose form of the short name of the property, then by the
+  // loose form of each name of the value; from PropertyValueAliases.txt.
+  Map<String, Map<String, String>> valueShortNames = new HashMap<String, Map<String, String>> ();
+
+  private void parsePropertyValueAliases (Version v, URL baseURL) throws Exception {
+    if (! v.isAtLeast (Version.V3_2_0) || ! Parser.exists (new URL (baseURL, "PropertyValueAliases.txt"))) {
+      return; }
+    Parser.parseSemiDelimitedFile (baseURL, "PropertyValueAliases.txt", "US-ASCII",
+        new Loader () {
+      public void process (String[] fields) {
+        // ccc has its numeric value before the names
+        if (fields.length < 3 || "ccc".equals (fields [0])) {
+          return; }
+        String p = Property.loose (fields [0]);
+        Map<String, String> names = valueShortNames.get (p);
+        if (names == null) {
+          names = new HashMap<String, String> ();
+          valueShortNames.put (p, names); }
+        for (int i = 1; i < fields.length; i++) {
+          names.put (Property.loose (fields [i]), fields [1]); }}});
+  }
+
+  /** Puts the defaults given by the @missing lines of a file for p,
+   *  with their value in fields [field]. A value is translated by
+   *  'names' if there, and otherwise to its short name; placeholders
+   *  such as "<none>" or "<script>" are left to the loader. A later
+   *  line takes precedence over an earlier one, so they are put last
+   *  first.
+   *
+   *  The default for the whole codespace comes from the @missing lines
+   *  when there is one for it, and is 'fallback' otherwise, as in the
+   *  versions of the UCD before those lines. A null 'fallback' means
+   *  that the loader puts that default itself.
+   */
+  private void putMissing (Property p, int field, List<Missing> missing, Map<String, String> names, String fallback) {
+    String whole = null;
+    for (int i = missing.size () - 1; i >= 0; i--) {
+      Missing m = missing.get (i);
+      String value = missingValue (p, m.fields, field, names);
+      if (value == null) {
+        continue; }
+      if (! m.isWholeCodespace ()) {
+        repertoire.putDefault (m.firstCp, m.lastCp, p, value); }
+      else if (whole == null) {
+        whole = value; }}
+    if (fallback != null) {
+      repertoire.putDefault (p, whole != null ? whole : fallback); }
+  }
+
+  /** As putMissing, for a file with several properties, whose @missing
+   *  lines give the property in fields [1] and its value in fields [2].
+   *  'defaults' are the fallbacks, put together.
+   */
+  private void putMissing (List<Missing> missing, Map<Property, String> defaults) {
+    Set<Property> whole = new HashSet<Property> ();
+    for (int i = missing.size () - 1; i >= 0; i--) {
+      Missing m = missing.get (i);
+      if (m.fields.length < 3) {
+        continue; }
+      Property p = Property.fromString (m.fields [1]);
+      String value = missingValue (p, m.fields, 2, null);
+      if (value == null) {
+        continue; }
+      if (! m.isWholeCodespace ()) {
+        repertoire.putDefault (m.firstCp, m.lastCp, p, value); }
+      else if (defaults.containsKey (p) && whole.add (p)) {
+        defaults.put (p, value); }}
+    repertoire.putDefaults (defaults);
+  }
+
+  private String missingValue (Property p, String[] fields, int field, Map<String, String> names) {
+    if (fields.length <= field || fields [field].startsWith ("<")) {
+      return null; }
+    String value = fields [field];
+    if (names != null && names.get (value) != null) {
+      return names.get (value); }
+    Map<String, String> shortNames = valueShortNames.get (Property.loose (p.getShortName ()));
+    if (shortNames != null && shortNames.get (Property.loose (value)) != null) {
+      return shortNames.get (Property.loose (value)); }
+    return value;
+  }
+
   private void parseArabicShaping (Version v, URL baseURL) throws Exception {
     final Version vv = v;
     if (v.isAtLeast (Version.V2_0_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "ArabicShaping.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "ArabicShaping.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
               String jt = fields [2];
               repertoire.put (firstCp, lastCp, Property.jt, jt);
               if (jgMap.get (fields [3]) == null) {
-                System.err.println ("** Unknown jg value (" + fields [3] + ") for U+" + toU(firstCp)); }
+                diagnostics.record (Diagnostics.Kind.UNKNOWN_VALUE, "ArabicShaping.txt", currentLine, firstCp,
+                                    Property.jg, fields [3]); }
               repertoire.put (firstCp, lastCp, Property.jg, jgMap.get (fields [3])); }});
+      putMissing (Property.jt, 2, missing, null, null);
+      putMissing (Property.jg, 3, missing, null, null);
 
       repertoire.putDefault (
           new DefaultSetter () {
@@ -456,29 +623,37 @@ public class Ucd {
                   r.putDefault (Property.jt, "U"); }}
 
               if (r.get (Property.jg) == null) {
-                r.putDefault (Property.jg, "No_Joining_Group"); }}}); }
+                r.putDefault (Property.jg, "No_Joining_Group"); }}},
+          Property.jt, Property.jg); }
   }
 
   private void parseBidiBrackets (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V6_3_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "BidiBrackets.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "BidiBrackets.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
               repertoire.put (firstCp, lastCp, Property.bpt, fields [2]);
               repertoire.put (firstCp, lastCp, Property.bpb, fields [1]); }});
 
-      repertoire.putDefault (Property.bpt, "n");
-      repertoire.putDefault (Property.bpb, "#"); }
+      putMissing (Property.bpt, 2, missing, null, "n");
+      putMissing (Property.bpb, 1, missing, null, "#"); }
   }
 
   private void parseBidiMirroring (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V3_0_1)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "BidiMirroring.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "BidiMirroring.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
               repertoire.put (firstCp, lastCp, Property.bmg, Ucd.toU (fields [1])); }});
 
-      repertoire.putDefault (Property.bmg, ""); }
+      putMissing (Property.bmg, 1, missing, null, ""); }
+  }
+
+  private void putCaseFoldingDefaults () {
+    Map<Property, String> defaults = new LinkedHashMap<Property, String> ();
+    defaults.put (Property.scf, "#");
+    defaults.put (Property.cf, "#");
+    repertoire.putDefaults (defaults);
   }
 
   private void parseCaseFolding (Version v, URL baseURL) throws Exception {
@@ -495,8 +670,7 @@ public class Ucd {
               if ("F".equals (fields [1])) {
                 repertoire.put (firstCp, lastCp, Property.cf, fields [2]); }}});
 
-      repertoire.putDefault (Property.scf, "#");
-      repertoire.putDefault (Property.cf, "#");
+      putCaseFoldingDefaults ();
 
       return; }
 
@@ -508,8 +682,7 @@ public class Ucd {
                 repertoire.put (firstCp, lastCp, Property.scf, fields [2]); }
               repertoire.put (firstCp, lastCp, Property.cf, fields [2]); }});
 
-      repertoire.putDefault (Property.scf, "#");
-      repertoire.putDefault (Property.cf, "#");
+      putCaseFoldingDefaults ();
 
       return; }
   }
@@ -544,89 +717,94 @@ public class Ucd {
 
 
 
+  // The ages are not given by their short name.
+  static final Map<String, String> ageNames = Collections.singletonMap ("Unassigned", "unassigned");
+
   private void parseDerivedAge (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V3_2_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "DerivedAge.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "DerivedAge.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
               repertoire.put (firstCp, lastCp, Property.age, fields [1]); }});
 
-      repertoire.putDefault (Property.age, "unassigned"); }
+      putMissing (Property.age, 1, missing, ageNames, "unassigned"); }
   }
 
   private void parseEquivalentUnifiedIdeograph (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V11_0_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "EquivalentUnifiedIdeograph.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "EquivalentUnifiedIdeograph.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
-              repertoire.put (firstCp, lastCp, Property.EqUIdeo, fields [1]); }}); }
+              repertoire.put (firstCp, lastCp, Property.EqUIdeo, fields [1]); }});
+      putMissing (Property.EqUIdeo, 1, missing, null, null); }
   }
 
   private void parseEastAsianWidth (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V3_0_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "EastAsianWidth.txt", 0, "US-ASCII",
+      final PropertyColumn ea = new PropertyColumn (Property.ea);
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "EastAsianWidth.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
-              repertoire.put (firstCp, lastCp, Property.ea, fields [1]); }});
-
-      repertoire.putDefault (Property.ea, "N"); }
+              ea.add (firstCp, lastCp, fields [1]); }});
+      repertoire.applyBatch (ea);
+      putMissing (Property.ea, 1, missing, null, "N"); }
   }
 
   private void parseHangulSyllableType (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V4_0_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "HangulSyllableType.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "HangulSyllableType.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
               repertoire.put (firstCp, lastCp, Property.hst, fields [1]); }});
 
-      repertoire.putDefault (Property.hst, "NA"); }
+      putMissing (Property.hst, 1, missing, null, "NA"); }
   }
 
   private void parseIndicSyllabicCategory (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V6_0_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "IndicSyllabicCategory.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "IndicSyllabicCategory.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
               repertoire.put (firstCp, lastCp, Property.InSC, fields [1]); }});
 
-      repertoire.putDefault (Property.InSC, "Other"); }
+      putMissing (Property.InSC, 1, missing, null, "Other"); }
   }
 
   private void parseIndicMatraCategory (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V6_0_0) && v.isAtMost (Version.V7_0_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "IndicMatraCategory.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "IndicMatraCategory.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
               repertoire.put (firstCp, lastCp, Property.InMC, fields [1]); }});
 
-      repertoire.putDefault (Property.InMC, "NA"); }
+      putMissing (Property.InMC, 1, missing, null, "NA"); }
   }
 
   private void parseIndicPositionalCategory (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V8_0_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "IndicPositionalCategory.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "IndicPositionalCategory.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
               repertoire.put (firstCp, lastCp, Property.InPC, fields [1]); }});
 
-      repertoire.putDefault (Property.InPC, "NA"); }
+      putMissing (Property.InPC, 1, missing, null, "NA"); }
   }
 
   private void parseJamo (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V3_0_1)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "Jamo.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "Jamo.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
               repertoire.put (firstCp, lastCp, Property.jsn, fields [1]); }});
 
-      repertoire.putDefault (Property.jsn, ""); }
+      putMissing (Property.jsn, 1, missing, null, ""); }
     else if (v.isAtLeast (Version.V2_0_0)) {
-      Parser.parseSemiDelimitedFileWithUCodePoints (baseURL, "Jamo.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithUCodePoints (baseURL, "Jamo.txt", 0, "US-ASCII", diagnostics,
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
               repertoire.put (firstCp, lastCp, Property.jsn, fields [1]); }});
 
-      repertoire.putDefault (Property.jsn, ""); }
+      putMissing (Property.jsn, 1, missing, null, ""); }
   }
 
   private void parseCJKRadicals (Version v, URL baseURL) throws Exception {
@@ -639,27 +817,31 @@ public class Ucd {
 
   private void parseLineBreak (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V3_0_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "LineBreak.txt", 0, "US-ASCII",
+      final PropertyColumn lb = new PropertyColumn (Property.lb);
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "LineBreak.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
-              repertoire.put (firstCp, lastCp, Property.lb, fields [1]); }});
-
-      repertoire.putDefault (Property.lb, v.isAtLeast (Version.V4_0_0) ? "XX" : "AL"); }
+              lb.add (firstCp, lastCp, fields [1]); }});
+      repertoire.applyBatch (lb);
+      putMissing (Property.lb, 1, missing, null, v.isAtLeast (Version.V4_0_0) ? "XX" : "AL"); }
   }
 
 
   private void parseBinaryPropertyFile (Version v, URL baseURL, String filename, String charset) throws Exception {
     final Set<Property> properties = new HashSet<Property> ();
 
-    Parser.parseSemiDelimitedFileWithCodePoints (baseURL, filename, 0, charset,
+    List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, filename, 0, charset,
       new LoaderWithCodePoints () {
+        final Property.Memo names = new Property.Memo ();
         public void process (int firstCp, int lastCp, String[] fields) {
-          Property p = Property.fromString (fields [1]);
+          Property p = names.fromString (fields [1]);
           properties.add (p);
           repertoire.put (firstCp, lastCp, p, "Y"); }});
 
+    Map<Property, String> defaults = new LinkedHashMap<Property, String> ();
     for (Property p : properties) {
-      repertoire.putDefault (p, "N"); }
+      defaults.put (p, "N"); }
+    putMissing (missing, defaults);
   }
 
   private void parsePropList (Version v, URL baseURL) throws Exception {
@@ -672,19 +854,22 @@ public class Ucd {
     final Set<Property> binaryProperties = new HashSet<Property> ();
 
     if (v.isAtLeast (Version.V15_1_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "DerivedCoreProperties.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "DerivedCoreProperties.txt", 0, "US-ASCII",
         new LoaderWithCodePoints () {
+          final Property.Memo names = new Property.Memo ();
           public void process (int firstCp, int lastCp, String[] fields) {
-            Property p = Property.fromString(fields [1]);
+            Property p = names.fromString (fields [1]);
             if (fields.length == 2) {
               binaryProperties.add (p);
               repertoire.put (firstCp, lastCp, p, "Y"); }
             else {
               repertoire.put (firstCp, lastCp, p, fields[2]); }}});
 
+      Map<Property, String> defaults = new LinkedHashMap<Property, String> ();
       for (Property p : binaryProperties) {
-        repertoire.putDefault (p, "N"); }
-      repertoire.putDefault (Property.InCB, "None"); }
+        defaults.put (p, "N"); }
+      defaults.put (Property.InCB, "None");
+      putMissing (missing, defaults); }
 
     else if (v.isAtLeast (Version.V3_1_0)) {
       parseBinaryPropertyFile (v, baseURL, "DerivedCoreProperties.txt", "US-ASCII"); }
@@ -693,10 +878,11 @@ public class Ucd {
   private void parseDerivedNormalizationProperties (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V3_1_0)) {
 
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL,
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL,
         v.isAtLeast (Version.V3_2_0) ? "DerivedNormalizationProps.txt" : "DerivedNormalizationProperties.txt",
            0, "US-ASCII",
         new LoaderWithCodePoints () {
+          final Property.Memo names = new Property.Memo ();
           public void process (int firstCp, int lastCp, String[] fields) {
             if ("NFD_NO".equals (fields[1])) {
               repertoire.put (firstCp, lastCp, Property.nfd_qc, "N"); }
@@ -711,29 +897,32 @@ public class Ucd {
             else if ("NFKC_NO".equals (fields[1])) {
               repertoire.put (firstCp, lastCp, Property.nfkc_qc, "N"); }
             else {
-              Property p = Property.fromString (fields [1]);
+              Property p = names.fromString (fields [1]);
               if (fields.length == 2) {
                 repertoire.put (firstCp, lastCp, p, "Y"); }
               else {
                 repertoire.put (firstCp, lastCp, p, fields[2]); }}}});
 
-      repertoire.putDefault (Property.fc_nfkc, "#");
-      repertoire.putDefault (Property.comp_ex, "N");
-      repertoire.putDefault (Property.nfc_qc, "Y");
-      repertoire.putDefault (Property.nfd_qc, "Y");
-      repertoire.putDefault (Property.nfkc_qc, "Y");
-      repertoire.putDefault (Property.nfkd_qc, "Y");
-      repertoire.putDefault (Property.xo_nfc, "N");
-      repertoire.putDefault (Property.xo_nfd, "N");
-      repertoire.putDefault (Property.xo_nfkc, "N");
-      repertoire.putDefault (Property.xo_nfkd, "N");
+      Map<Property, String> defaults = new LinkedHashMap<Property, String> ();
+      defaults.put (Property.fc_nfkc, "#");
+      defaults.put (Property.comp_ex, "N");
+      defaults.put (Property.nfc_qc, "Y");
+      defaults.put (Property.nfd_qc, "Y");
+      defaults.put (Property.nfkc_qc, "Y");
+      defaults.put (Property.nfkd_qc, "Y");
+      defaults.put (Property.xo_nfc, "N");
+      defaults.put (Property.xo_nfd, "N");
+      defaults.put (Property.xo_nfkc, "N");
+      defaults.put (Property.xo_nfkd, "N");
 
       if (v.isAtLeast (Version.V5_2_0)) {
-        repertoire.putDefault (Property.cwkcf, "N");
-        repertoire.putDefault (Property.nfkc_cf, "#");
+        defaults.put (Property.cwkcf, "N");
+        defaults.put (Property.nfkc_cf, "#");
 
         if (v.isAtLeast (Version.V15_1_0)) {
-            repertoire.putDefault (Property.NFKC_SCF, "#"); }}
+            defaults.put (Property.NFKC_SCF, "#"); }}
+
+      putMissing (missing, defaults);
     }
   }
 
@@ -939,28 +1128,33 @@ public class Ucd {
 
   private void parseScripts (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V3_1_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "Scripts.txt", 0, "US-ASCII",
+      final PropertyColumn scs = new PropertyColumn (Property.sc);
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "Scripts.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
               String sc = scriptMap.get (fields [1].toUpperCase ());
               if (sc == null) {
-                System.err.println ("Unknown script: " + fields [1]); }
-              repertoire.put (firstCp, lastCp, Property.sc, sc); }});
-      repertoire.putDefault (Property.sc, v.isAtLeast (Version.V5_0_0) ? "Zzzz" : "Zyyy"); }
+                diagnostics.record (Diagnostics.Kind.UNKNOWN_VALUE, "Scripts.txt", currentLine, firstCp,
+                                    Property.sc, fields [1]); }
+              scs.add (firstCp, lastCp, sc); }});
+      repertoire.applyBatch (scs);
+      putMissing (Property.sc, 1, missing, null, v.isAtLeast (Version.V5_0_0) ? "Zzzz" : "Zyyy"); }
   }
 
   private void parseScriptExtensions (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V6_1_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "ScriptExtensions.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "ScriptExtensions.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
             public void process (int firstCp, int lastCp, String[] fields) {
               repertoire.put (firstCp, lastCp, Property.scx, fields [1]); }});
+      putMissing (Property.scx, 1, missing, null, null);
 
       repertoire.putDefault (
           new DefaultSetter  ()  {
             public void process (Group r) {
               if (r.get (Property.scx) == null) {
-                r.putDefault (Property.scx, r.get (Property.sc)); }}}); }
+                r.putDefault (Property.scx, r.get (Property.sc)); }}},
+          Property.scx); }
   }
 
   private void parseSpecialCasing (Version v, URL baseURL) throws Exception {
@@ -973,10 +1167,13 @@ public class Ucd {
                 repertoire.put (firstCp, lastCp, Property.tc, fields [2]);
                 repertoire.put (firstCp, lastCp, Property.uc, fields [3]); }}});
 
-      for (Group r : repertoire.groups) {
-        r.putDefault (Property.lc, r.get (Property.slc));
-        r.putDefault (Property.tc, r.get (Property.stc));
-        r.putDefault (Property.uc, r.get (Property.suc)); }}
+      repertoire.putDefault (
+          new DefaultSetter () {
+            public void process (Group r) {
+              r.putDefaultObject (Property.lc, r.getObject (Property.slc));
+              r.putDefaultObject (Property.tc, r.getObject (Property.stc));
+              r.putDefaultObject (Property.uc, r.getObject (Property.suc)); }},
+          Property.lc, Property.tc, Property.uc); }
   }
 
   static final Map<String, String> gcbMap;
@@ -1006,14 +1203,15 @@ public class Ucd {
 
   private void parseGraphemeBreak (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V4_1_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "auxiliary/GraphemeBreakProperty.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "auxiliary/GraphemeBreakProperty.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
         public void process (int firstCp, int lastCp, String[] fields) {
           if (gcbMap.get (fields [1]) == null) {
-            System.err.println ("** Unknown gcb value (" + fields [1] + ") for U+" + toU(firstCp)); }
+            diagnostics.record (Diagnostics.Kind.UNKNOWN_VALUE, "auxiliary/GraphemeBreakProperty.txt", currentLine, firstCp,
+                                Property.gcb, fields [1]); }
           repertoire.put (firstCp, lastCp, Property.gcb, gcbMap.get (fields [1])); }});
 
-      repertoire.putDefault (Property.gcb, "XX"); }
+      putMissing (Property.gcb, 1, missing, gcbMap, "XX"); }
   }
 
   static final Map<String, String> wbMap;
@@ -1050,14 +1248,15 @@ public class Ucd {
 
   private void parseWordBreak (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V4_1_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "auxiliary/WordBreakProperty.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "auxiliary/WordBreakProperty.txt", 0, "US-ASCII",
         new LoaderWithCodePoints () {
         public void process (int firstCp, int lastCp, String[] fields) {
           if (wbMap.get (fields [1]) == null) {
-            System.err.println ("** Unknown wb value (" + fields [1] + ") for U+" + toU(firstCp)); }
+            diagnostics.record (Diagnostics.Kind.UNKNOWN_VALUE, "auxiliary/WordBreakProperty.txt", currentLine, firstCp,
+                                Property.wb, fields [1]); }
           repertoire.put (firstCp, lastCp, Property.wb, wbMap.get (fields [1])); }});
 
-      repertoire.putDefault (Property.wb, "XX"); }
+      putMissing (Property.wb, 1, missing, wbMap, "XX"); }
   }
 
   static final Map<String, String> sbMap;
@@ -1082,73 +1281,151 @@ public class Ucd {
 
   private void parseSentenceBreak (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V4_1_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "auxiliary/SentenceBreakProperty.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "auxiliary/SentenceBreakProperty.txt", 0, "US-ASCII",
         new LoaderWithCodePoints () {
           public void process (int firstCp, int lastCp, String[] fields) {
             if (sbMap.get (fields [1]) == null) {
-              System.err.println ("** Unknown sb value (" + fields [1] + ") for U+" + toU(firstCp)); }
+              diagnostics.record (Diagnostics.Kind.UNKNOWN_VALUE, "auxiliary/SentenceBreakProperty.txt", currentLine, firstCp,
+                                  Property.sb, fields [1]); }
             repertoire.put (firstCp, lastCp, Property.sb, sbMap.get (fields [1])); }});
 
-      repertoire.putDefault (Property.sb, "XX"); }
+      putMissing (Property.sb, 1, missing, sbMap, "XX"); }
   }
 
   private void parseDerivedBidiClass (Version v, URL baseURL) throws Exception {
+    List<Missing> missing = Collections.emptyList ();
     if (v.isAtLeast (Version.V15_0_0)) {
-      Parser.parseSemiDelimitedFileWithCodePointsAndAtmissings (baseURL, "extracted/DerivedBidiClass.txt", 0, "US-ASCII",
+      missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "extracted/DerivedBidiClass.txt", 0, "US-ASCII",
         new LoaderWithCodePoints () {
           public void process (int firstCp, int lastCp, String[] fields) {
-            if ((fields [1]).length () > 3) {
-              if ("Left_To_Right".equals (fields [1])) {
-                fields [1] = "L"; }
-              else if ("Right_To_Left".equals (fields [1])) {
-                fields [1] = "R"; }
-              else if ("Arabic_Letter".equals (fields [1])) {
-                fields [1] = "AL"; }
-              else if ("European_Terminator".equals (fields [1])) {
-                fields [1] = "ET"; }}
             repertoire.putForced (firstCp, lastCp, Property.bc, fields [1]); }}); }
 
     else if (v.isAtLeast (Version.V3_2_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "extracted/DerivedBidiClass.txt", 0, "US-ASCII",
+      missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "extracted/DerivedBidiClass.txt", 0, "US-ASCII",
         new LoaderWithCodePoints () {
           public void process (int firstCp, int lastCp, String[] fields) {
             repertoire.put (firstCp, lastCp, Property.bc, fields [1]); }}); }
 
-      repertoire.putDefault (Property.bc, "L");
+    putMissing (Property.bc, 1, missing, null, "L");
   }
 
-  private void parseUnihan (Version v, URL baseURL, boolean numericValuesOnly) throws Exception {
-    final String currentFile = new URL (baseURL, "Unihan.txt").toString ();
-    final boolean numericValsOnly = numericValuesOnly;
+  // The files in which Unihan is distributed since 5.2, when
+  // Unihan.txt is not there.
+  static final String[] unihanFiles = {
+    "Unihan_DictionaryIndices.txt", "Unihan_DictionaryLikeData.txt",
+    "Unihan_IRGSources.txt", "Unihan_NumericValues.txt",
+    "Unihan_OtherMappings.txt", "Unihan_RadicalStrokeCounts.txt",
+    "Unihan_Readings.txt", "Unihan_Variants.txt" };
+
+  /** Receives the lines of a range of a Unihan file, as they are
+   *  parsed, and the lines which could not be parsed.
+   */
+  static abstract class UnihanLines {
+    abstract void add (int cp, Property p, String v);
+    abstract void error (int line, int nbFields);
+  }
+
+  /** The lines of a range of a Unihan file, parsed but not yet stored
+   *  in the repertoire; also the lines which could not be parsed.
+   */
+  static final class UnihanChunk extends UnihanLines {
+    int[] cps = new int [1024];
+    Property[] properties = new Property [1024];
+    String[] values = new String [1024];
+    int size = 0;
+    int lines = 0;
+    List<int[]> errors = new ArrayList<int[]> ();
+
+    void add (int cp, Property p, String v) {
+      if (size == cps.length) {
+        cps = Arrays.copyOf (cps, 2 * size);
+        properties = Arrays.copyOf (properties, 2 * size);
+        values = Arrays.copyOf (values, 2 * size); }
+      cps [size] = cp;
+      properties [size] = p;
+      values [size] = v;
+      size++;
+    }
+
+    void error (int line, int nbFields) {
+      errors.add (new int [] {line, nbFields});
+    }
+  }
 
+  // Returns the number of lines in the range.
+  static int parseUnihanLines (ByteBuffer b, int start, int end, final UnihanLines lines) throws Exception {
+    FieldLoader loader = new FieldLoader () {
+      final Property.Memo names = new Property.Memo ();
+
+      public void process (Fields fields) {
+        if (fields.size () != 3) {
+          lines.error (currentLine, fields.size ());
+          return; }
+        CharSequence u = fields.get (0);
+        int cp = Parser.parseHex (u, 2, u.length ());
+        Property p = names.fromString (fields.getString (1));
+        lines.add (cp, p, fields.getString (2)); }};
+
+    Parser.parseDelimitedBytes (b, start, end, 0, loader, '\t', false, "UTF-8");
+    return loader.currentLine;
+  }
+
+  static UnihanChunk parseUnihanChunk (ByteBuffer b, int start, int end) throws Exception {
+    UnihanChunk chunk = new UnihanChunk ();
+    chunk.lines = parseUnihanLines (b, start, end, chunk);
+    return chunk;
+  }
+
+  // The last part of the path of a UCD file.
+  static String fileName (URL url) {
+    String path = url.getPath ();
+    return path.substring (path.lastIndexOf ('/') + 1);
+  }
+
+  // Unihan.txt if it is there, otherwise the Unihan_*.txt files.
+  private static List<URL> unihanURLs (URL baseURL) throws Exception {
+    List<URL> urls = new ArrayList<URL> ();
+    URL all = new URL (baseURL, "Unihan.txt");
+    if (Parser.exists (all)) {
+      urls.add (all);
+      return urls; }
+    for (String f : unihanFiles) {
+      URL url = new URL (baseURL, f);
+      if (Parser.exists (url)) {
+        urls.add (url); }}
+    if (urls.isEmpty ()) {
+      urls.add (all); }
+    return urls;
+  }
+
+  // When loading sequentially, each file is stored as it is parsed,
+  // one file after the other; each line touches only its own code
+  // point, so this is the same as the order of the parallel loading.
+  //
+  // When loading in parallel, each file is split into ranges of lines,
+  // parsed on the pool of loadInParallel. The lines are then stored in
+  // the repertoire, in the order of their file when there is a single
+  // file, and in code point order across files (the lines of a code
+  // point are stored in the order of the files).
+  private void parseUnihan (final Version v, URL baseURL, final boolean numericValuesOnly) throws Exception {
     final boolean[] unihanCodePoint = new boolean[0x110000];
-    for (int cp = 0; cp < 0x110000; cp++) {
-      unihanCodePoint [cp] = false; }
 
-    Parser.parseTabDelimitedFile (baseURL, "Unihan.txt", "UTF-8",
-        new Loader () {
-          public void process (String[] fields) {
-            if (fields.length != 3) {
-              System.err.println ("@@@ Error in file " + currentFile + " at line " + currentLine);
-              System.err.println ("    " + fields.length + " fields when 3 are expected; ignoring this line");
-              return; }
-            int cp = Integer.parseInt (fields [0].substring (2), 16);
-            Property p = Property.fromString (fields [1]);
-            unihanCodePoint [cp] = true;
-            repertoire.put (cp, cp, Property.type, "char");
-            if (! numericValsOnly) {
-              repertoire.put (cp, cp, p, fields [2]); }
-            if (Property.kAccountingNumeric == p
-                || Property.kPrimaryNumeric == p
-                || Property.kOtherNumeric == p) {
-              // the numeric properties may have already been set from
-              // UnicodeData.txt, and we need to override them,
-              // hence the "putForced" rather than the the usual "put".
-              repertoire.putForced (cp, cp, Property.nt, "Nu");
-              String nv = fields [2];
-              if (v.isAtLeast (Version.V16_0_0)) {
-                nv = nv.split (" ") [0]; }
-              repertoire.putForced (cp, cp, Property.nv, nv); }}});
+    List<URL> urls = unihanURLs (baseURL);
+    if (loadPool == null) {
+      for (URL url : urls) {
+        if (Parser.verbosity >= 3) {
+          System.out.println ("      ... " + url); }
+        ByteBuffer b = Parser.read (url);
+        LoadProfile.read (b.limit ());
+        final String file = fileName (url);
+        parseUnihanLines (b, 0, b.limit (), new UnihanLines () {
+          void add (int cp, Property p, String value) {
+            storeUnihan (v, cp, p, value, numericValuesOnly, unihanCodePoint); }
+          void error (int line, int nbFields) {
+            diagnostics.record (Diagnostics.Kind.FIELD_COUNT, file, line, -1,
+                                null, nbFields + " fields when 3 are expected"); }}); }}
+    else {
+      storeUnihanChunks (v, parseUnihanChunks (urls), numericValuesOnly, unihanCodePoint); }
 
     if (! numericValuesOnly) {
       final Version vv = v;
@@ -1173,39 +1450,142 @@ public class Ucd {
 
                 if (vv.isAtLeast (Version.V13_0_0)) {
                   r.putDefault (Property.kIRG_UKSource, "");
-                  r.putDefault (Property.kIRG_SSource, ""); }}}}); }
+                  r.putDefault (Property.kIRG_SSource, ""); }}}},
+          Property.kCompatibilityVariant, Property.kIRG_GSource, Property.kIRG_TSource,
+          Property.kIRG_JSource, Property.kIRG_KSource, Property.kIRG_KPSource,
+          Property.kIRG_VSource, Property.kIRG_HSource, Property.kIRG_USource,
+          Property.kIRG_MSource, Property.kIRG_UKSource, Property.kIRG_SSource); }
+  }
+
+  // Parses each file in one range of lines per processor, on the pool
+  // of loadInParallel. This runs itself on that pool, so rather than
+  // waiting for the ranges, it parses those which have not started yet;
+  // the pool is thus neither doubled nor exhausted by waiting tasks.
+  private List<List<UnihanChunk>> parseUnihanChunks (List<URL> urls) throws Exception {
+    int nbChunks = Runtime.getRuntime ().availableProcessors ();
+    List<List<FutureTask<UnihanChunk>>> tasks = new ArrayList<List<FutureTask<UnihanChunk>>> ();
+    for (URL url : urls) {
+      if (Parser.verbosity >= 3) {
+        System.out.println ("      ... " + url); }
+      final ByteBuffer b = Parser.read (url);
+      LoadProfile.read (b.limit ());
+      final int[] starts = Parser.splitLines (b, nbChunks);
+      final LoadProfile.Step profile = LoadProfile.current ();
+      List<FutureTask<UnihanChunk>> t = new ArrayList<FutureTask<UnihanChunk>> ();
+      for (int i = 0; i + 1 < starts.length; i++) {
+        final int start = starts [i];
+        final int end = starts [i + 1];
+        FutureTask<UnihanChunk> task = new FutureTask<UnihanChunk> (new Callable<UnihanChunk> () {
+          public UnihanChunk call () throws Exception {
+            LoadProfile.Span span = LoadProfile.beginHelper (profile);
+            try {
+              return parseUnihanChunk (b, start, end); }
+            finally {
+              span.end (); }}});
+        loadPool.execute (task);
+        t.add (task); }
+      tasks.add (t); }
+
+    List<List<UnihanChunk>> chunks = new ArrayList<List<UnihanChunk>> ();
+    try {
+      for (int i = 0; i < urls.size (); i++) {
+        List<UnihanChunk> c = new ArrayList<UnihanChunk> ();
+        int line = 0;
+        for (FutureTask<UnihanChunk> t : tasks.get (i)) {
+          t.run ();
+          UnihanChunk chunk;
+          try {
+            chunk = t.get (); }
+          catch (ExecutionException e) {
+            if (e.getCause () instanceof Exception) {
+              throw (Exception) e.getCause (); }
+            throw e; }
+          for (int[] error : chunk.errors) {
+            diagnostics.record (Diagnostics.Kind.FIELD_COUNT, fileName (urls.get (i)), line + error [0], -1,
+                                null, error [1] + " fields when 3 are expected"); }
+          line += chunk.lines;
+          c.add (chunk); }
+        chunks.add (c); }}
+    finally {
+      for (List<FutureTask<UnihanChunk>> t : tasks) {
+        for (FutureTask<UnihanChunk> task : t) {
+          task.cancel (true); }}}
+    return chunks;
+  }
+
+  private void storeUnihanChunks (Version v, List<List<UnihanChunk>> chunks,
+                                  boolean numericValuesOnly, boolean[] unihanCodePoint) {
+    // The position of the next line to store in each file.
+    int[] chunkIndex = new int [chunks.size ()];
+    int[] position = new int [chunks.size ()];
+    while (true) {
+      int file = -1;
+      int cp = Integer.MAX_VALUE;
+      for (int i = 0; i < chunks.size (); i++) {
+        List<UnihanChunk> c = chunks.get (i);
+        while (chunkIndex [i] < c.size () && position [i] == c.get (chunkIndex [i]).size) {
+          chunkIndex [i]++;
+          position [i] = 0; }
+        if (chunkIndex [i] < c.size () && c.get (chunkIndex [i]).cps [position [i]] < cp) {
+          file = i;
+          cp = c.get (chunkIndex [i]).cps [position [i]]; }}
+      if (file == -1) {
+        break; }
+
+      UnihanChunk chunk = chunks.get (file).get (chunkIndex [file]);
+      Property p = chunk.properties [position [file]];
+      String value = chunk.values [position [file]];
+      position [file]++;
+      storeUnihan (v, cp, p, value, numericValuesOnly, unihanCodePoint); }
+  }
+
+  private void storeUnihan (Version v, int cp, Property p, String value,
+                            boolean numericValuesOnly, boolean[] unihanCodePoint) {
+    unihanCodePoint [cp] = true;
+    repertoire.put (cp, cp, Property.type, "char");
+    if (! numericValuesOnly) {
+      repertoire.put (cp, cp, p, value); }
+    if (Property.kAccountingNumeric == p
+        || Property.kPrimaryNumeric == p
+        || Property.kOtherNumeric == p) {
+      // the numeric properties may have already been set from
+      // UnicodeData.txt, and we need to override them,
+      // hence the "putForced" rather than the the usual "put".
+      repertoire.putForced (cp, cp, Property.nt, "Nu");
+      String nv = value;
+      if (v.isAtLeast (Version.V16_0_0)) {
+        nv = nv.split (" ") [0]; }
+      repertoire.putForced (cp, cp, Property.nv, nv); }
   }
 
   private void parseTangutSources (Version v, URL baseURL) throws Exception {
-    final String currentFile = new URL (baseURL, "TangutSources.txt").toString ();
-
     if (v.isAtLeast (Version.V9_0_0)) {
       Parser.parseTabDelimitedFile (baseURL, "TangutSources.txt", "UTF-8",
                                     new Loader () {
+        final Property.Memo names = new Property.Memo ();
         public void process (String[] fields) {
           if (fields.length != 3) {
-            System.err.println ("@@@ Error in file " + currentFile + " at line " + currentLine);
-            System.err.println ("    " + fields.length + " fields when 3 are expected; ignoring this line");
+            diagnostics.record (Diagnostics.Kind.FIELD_COUNT, "TangutSources.txt", currentLine, -1,
+                                null, fields.length + " fields when 3 are expected");
             return; }
-          int cp = Integer.parseInt (fields [0].substring (2), 16);
-          Property p = Property.fromString (fields [1]);
+          int cp = Parser.parseHex (fields [0], 2, fields [0].length ());
+          Property p = names.fromString (fields [1]);
           repertoire.put (cp, cp, p, fields[2]);
         }}); }
   }
 
   private void parseNushuSources (Version v, URL baseURL) throws Exception {
-    final String currentFile = new URL (baseURL, "NushuSources.txt").toString ();
-
     if (v.isAtLeast (Version.V10_0_0)) {
       Parser.parseTabDelimitedFile (baseURL, "NushuSources.txt", "UTF-8",
                                     new Loader () {
+        final Property.Memo names = new Property.Memo ();
         public void process (String[] fields) {
           if (fields.length != 3) {
-            System.err.println ("@@@ Error in file " + currentFile + " at line " + currentLine);
-            System.err.println ("    " + fields.length + " fields when 3 are expected; ignoring this line");
+            diagnostics.record (Diagnostics.Kind.FIELD_COUNT, "NushuSources.txt", currentLine, -1,
+                                null, fields.length + " fields when 3 are expected");
             return; }
-          int cp = Integer.parseInt (fields [0].substring (2), 16);
-          Property p = Property.fromString (fields [1]);
+          int cp = Parser.parseHex (fields [0], 2, fields [0].length ());
+          Property p = names.fromString (fields [1]);
           repertoire.put (cp, cp, p, fields[2]);
         }}); }
   }
@@ -1254,15 +1634,21 @@ public class Ucd {
   private void parseNameAliases (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V5_0_0)) {
       final Version vv = v;
+      // The aliases are collected here rather than read back from the
+      // repertoire, and stored in the order of their first occurrence.
+      final Map<Integer, Set<NameAlias>> aliases = new LinkedHashMap<Integer, Set<NameAlias>> ();
       Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "NameAliases.txt", 0, "US-ASCII",
           new LoaderWithCodePoints () {
         public void process (int first, int last, String[] fields) {
-          Set<NameAlias> nameAliases = (Set<NameAlias>) repertoire.getObject (first, Property.nameAlias);
+          Set<NameAlias> nameAliases = aliases.get (first);
           if (nameAliases == null) {
             nameAliases = new TreeSet<NameAlias> ();
-            repertoire.putObject (first, first, Property.nameAlias, nameAliases); }
+            aliases.put (first, nameAliases); }
           nameAliases.add (new NameAlias (fields [1],
-              vv.isAtLeast (Version.V6_1_0) ? fields [2] : null)); }}); }
+              vv.isAtLeast (Version.V6_1_0) ? fields [2] : null)); }});
+
+      for (Map.Entry<Integer, Set<NameAlias>> e : aliases.entrySet ()) {
+        repertoire.putObject (e.getKey (), e.getKey (), Property.nameAlias, e.getValue ()); }}
   }
 
   private void parseNamedSequences (Version v, URL baseURL) throws Exception {
@@ -1323,12 +1709,11 @@ public class Ucd {
 
   private void parseVerticalOrientation (Version v, URL baseURL) throws Exception {
     if (v.isAtLeast (Version.V10_0_0)) {
-      Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "VerticalOrientation.txt", 0, "US-ASCII",
+      List<Missing> missing = Parser.parseSemiDelimitedFileWithCodePoints (baseURL, "VerticalOrientation.txt", 0, "US-ASCII",
         new LoaderWithCodePoints () {
           public void process (int firstCp, int lastCp, String[] fields) {
             repertoire.put (firstCp, lastCp, Property.vo, fields [1]); }});
-
-      repertoire.putDefault (Property.vo, "R"); }
+      putMissing (Property.vo, 1, missing, null, "R"); }
   }
 
   private void parseEmojiData (Version v, URL baseURL) throws Exception {
@@ -1336,10 +1721,373 @@ public class Ucd {
       parseBinaryPropertyFile (v, baseURL, "emoji/emoji-data.txt", "US-ASCII"); }
   }
 
+  //----------------------------------------------------------------------------
+  // Loading the files of a UCD.
+
+  // Whether fromUCD loads the files on several threads; set by the
+  // 'loading' command of main.
+  static boolean parallelLoad = false;
+
+  /** The loading of one file. 'after' are the files whose loading
+   *  must be complete before this one is parsed, because it reads or
+   *  adds to their results while parsing (rather than in a
+   *  DefaultSetter).
+   */
+  static abstract class LoadStep {
+    final UcdFile file;
+    final UcdFile[] after;
+
+    LoadStep (UcdFile file, UcdFile... after) {
+      this.file = file;
+      this.after = after;
+    }
+
+    abstract void load (Ucd ucd) throws Exception;
+  }
+
+  // All the steps, in the order in which their changes are made to
+  // the repertoire. That order matters even when the steps are loaded
+  // in parallel: a file may override a value set by an earlier one,
+  // and the DefaultSetters read values set by earlier files (gc for
+  // jt, sc for scx, slc for lc, etc).
+  // EmojiVariationSequences adds to the same list as StandardizedVariants.
+  private List<LoadStep> loadSteps (final Version v, final URL baseURL) {
+    List<LoadStep> steps = new ArrayList<LoadStep> ();
+    steps.add (new LoadStep (UcdFile.UnicodeData) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseUnicodeData (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.DerivedBidiClass) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseDerivedBidiClass (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.ArabicShaping) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseArabicShaping (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.BidiBrackets) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseBidiBrackets (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.BidiMirroring) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseBidiMirroring (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.CaseFolding) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseCaseFolding (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.CompositionExclusions) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseCompositionExclusions (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.DerivedAge) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseDerivedAge (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.EastAsianWidth) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseEastAsianWidth (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.HangulSyllableType) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseHangulSyllableType (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.IndicSyllabicCategory) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseIndicSyllabicCategory (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.IndicMatraCategory) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseIndicMatraCategory (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.IndicPositionalCategory) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseIndicPositionalCategory (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.Jamo) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseJamo (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.LineBreak) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseLineBreak (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.PropList) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parsePropList (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.Scripts) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseScripts (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.ScriptExtensions) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseScriptExtensions (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.SpecialCasing) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseSpecialCasing (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.DerivedCoreProperties) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseDerivedCoreProperties (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.DerivedNormalizationProps) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseDerivedNormalizationProperties (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.GraphemeBreakProperty) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseGraphemeBreak (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.WordBreakProperty) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseWordBreak (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.SentenceBreakProperty) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseSentenceBreak (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.EquivalentUnifiedIdeograph) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseEquivalentUnifiedIdeograph (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.Unihan) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseUnihan (v, baseURL, false); }});
+    steps.add (new LoadStep (UcdFile.UnihanNumeric) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseUnihan (v, baseURL, true); }});
+    steps.add (new LoadStep (UcdFile.Blocks) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseBlocks (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.NamedSequences) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseNamedSequences (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.NamedSequencesProv) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseNamedSequencesProv (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.NormalizationCorrections) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseNormalizationCorrections (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.StandardizedVariants) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseStandardizedVariants (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.CJKRadicalNumbers) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseCJKRadicals (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.EmojiSources) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseEmojiSources (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.TangutSources) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseTangutSources (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.NushuSources) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseNushuSources (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.NameAliases) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseNameAliases (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.DoNotEmit) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseDoNotEmit (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.VerticalOrientation) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseVerticalOrientation (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.EmojiData) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseEmojiData (v, baseURL); }});
+    steps.add (new LoadStep (UcdFile.EmojiVariationSequences, UcdFile.StandardizedVariants) {
+        void load (Ucd ucd) throws Exception {
+          ucd.parseEmojiVariationSequences (v, baseURL); }});
+    return steps;
+  }
+
+  // A Ucd which shares everything with this one, except that its
+  // repertoire records the changes instead of making them.
+  private Ucd staging () {
+    Ucd u = new Ucd ();
+    u.description = description;
+    u.repertoire = new StagedRepertoire ();
+    u.blocks = blocks;
+    u.namedSequences = namedSequences;
+    u.namedSequencesProv = namedSequencesProv;
+    u.normalizationCorrections = normalizationCorrections;
+    u.standardizedVariants = standardizedVariants;
+    u.cjkRadicals = cjkRadicals;
+    u.emojiSources = emojiSources;
+    u.doNotEmit = doNotEmit;
+    u.diagnostics = diagnostics;
+    u.loadPool = loadPool;
+    u.valueShortNames = valueShortNames;
+    return u;
+  }
+
+  // The steps without dependencies are parsed on a pool of threads,
+  // each on a staging Ucd. Their changes are then replayed on this
+  // repertoire, one step at a time, in order, so that the result is
+  // the same as when loading sequentially. A step with dependencies
+  // is loaded directly on this Ucd when its turn comes; its
+  // dependencies come before it, and so are in by then.
+  private void loadInParallel (List<LoadStep> steps, final List<LoadProfile.Step> profiles) throws Exception {
+    Set<UcdFile> loading = new HashSet<UcdFile> ();
+    for (LoadStep step : steps) {
+      loading.add (step.file); }
+
+    ExecutorService pool = Executors.newFixedThreadPool (Runtime.getRuntime ().availableProcessors ());
+    loadPool = pool;
+    try {
+      List<Future<Ucd>> staged = new ArrayList<Future<Ucd>> ();
+      for (int i = 0; i < steps.size (); i++) {
+        final LoadStep step = steps.get (i);
+        final LoadProfile.Step profile = profiles.get (i);
+        if (hasDependencies (step, loading)) {
+          staged.add (null);
+          continue; }
+        staged.add (pool.submit (new Callable<Ucd> () {
+          public Ucd call () throws Exception {
+            Ucd u = staging ();
+            LoadProfile.Span span = LoadProfile.begin (profile, null);
+            try {
+              step.load (u); }
+            finally {
+              span.end (); }
+            return u; }})); }
+
+      for (int i = 0; i < steps.size (); i++) {
+        repertoire.currentFile = steps.get (i).file.toString ();
+        if (staged.get (i) == null) {
+          load (steps.get (i), profiles.get (i));
+          continue; }
+        Ucd u;
+        try {
+          u = staged.get (i).get (); }
+        catch (ExecutionException e) {
+          if (e.getCause () instanceof Exception) {
+            throw (Exception) e.getCause (); }
+          throw e; }
+        LoadProfile.Span span = LoadProfile.begin (profiles.get (i), repertoire);
+        try {
+          ((StagedRepertoire) u.repertoire).replay (repertoire); }
+        finally {
+          span.end (); }
+        populated (steps.get (i).file);
+        staged.set (i, null); }}
+    finally {
+      loadPool = null;
+      pool.shutdownNow (); }
+  }
+
+  // Loads 'step' directly on this Ucd.
+  private void load (LoadStep step, LoadProfile.Step profile) throws Exception {
+    LoadProfile.Span span = LoadProfile.begin (profile, repertoire);
+    try {
+      step.load (this); }
+    finally {
+      span.end (); }
+    populated (step.file);
+  }
+
+  // Records that the properties put since the last call come from 'f'.
+  private void populated (UcdFile f) {
+    for (Property p : repertoire.takePropertiesPut ()) {
+      Set<UcdFile> files = populatedBy.get (p);
+      if (files == null) {
+        files = EnumSet.noneOf (UcdFile.class);
+        populatedBy.put (p, files); }
+      files.add (f); }
+
+    Map<Property, SortedMap<Integer, Object>> replaced = repertoire.takeReplaced ();
+    Map<Property, SortedMap<Integer, Object>> earlier = replacedBy.get (f);
+    if (earlier == null) {
+      if (! replaced.isEmpty ()) {
+        replacedBy.put (f, replaced); }
+      return; }
+    for (Map.Entry<Property, SortedMap<Integer, Object>> e : replaced.entrySet ()) {
+      SortedMap<Integer, Object> values = earlier.get (e.getKey ());
+      if (values == null) {
+        earlier.put (e.getKey (), e.getValue ());
+        continue; }
+      for (Map.Entry<Integer, Object> v : e.getValue ().entrySet ()) {
+        if (! values.containsKey (v.getKey ())) {
+          values.put (v.getKey (), v.getValue ()); }}}
+  }
+
+  /** The properties of a named set: "unihan" for the properties which
+   *  got values from the Unihan files, "nounihan" for those which got
+   *  values from other files. A property which got values from both,
+   *  such as nt and nv, is in the set whose files did not force their
+   *  values over those of the other set; the projection on the other
+   *  set has it only where its files forced it (see project).
+   */
+  public Set<Property> propertySet (String name) {
+    boolean unihan = "unihan".equals (name);
+    Set<Property> result = new HashSet<Property> ();
+    for (Map.Entry<Property, Set<UcdFile>> e : populatedBy.entrySet ()) {
+      Property p = e.getKey ();
+      boolean ours = false;
+      boolean theirs = false;
+      for (UcdFile f : e.getValue ()) {
+        if (inSet (f, unihan)) {
+          ours = true; }
+        else {
+          theirs = true; }}
+      if (ours && ! (theirs && forcedBy (p, unihan))) {
+        result.add (p); }}
+    return result;
+  }
+
+  private static boolean inSet (UcdFile f, boolean unihan) {
+    return UcdFile.unihanFiles.contains (f) == unihan;
+  }
+
+  // Whether some file of a set forced values for 'p'.
+  private boolean forcedBy (Property p, boolean unihan) {
+    for (Map.Entry<UcdFile, Map<Property, SortedMap<Integer, Object>>> e : replacedBy.entrySet ()) {
+      if (inSet (e.getKey (), unihan) && e.getValue ().containsKey (p)) {
+        return true; }}
+    return false;
+  }
+
+  /** A Ucd with the properties of the named set only (see propertySet),
+   *  as if it had been loaded from the files of that set. Where the
+   *  files of one set forced the value of a property shared by both
+   *  sets, the projection on that set keeps the value, and that on the
+   *  other set gets back the value which was replaced. The blocks,
+   *  named sequences and such come from files which are not Unihan
+   *  files, and are kept only by "nounihan".
+   */
+  public Ucd project (String name) {
+    boolean unihan = "unihan".equals (name);
+    // At the code points where a file forced a value, the projection on
+    // its set has the value forced, and that on the other set the value
+    // which was replaced (the first one, if several files forced it).
+    Map<Property, SortedMap<Integer, Object>> forced = new HashMap<Property, SortedMap<Integer, Object>> ();
+    for (Map.Entry<UcdFile, Map<Property, SortedMap<Integer, Object>>> e : replacedBy.entrySet ()) {
+      boolean ours = inSet (e.getKey (), unihan);
+      for (Map.Entry<Property, SortedMap<Integer, Object>> c : e.getValue ().entrySet ()) {
+        Property p = c.getKey ();
+        SortedMap<Integer, Object> values = forced.get (p);
+        if (values == null) {
+          values = new TreeMap<Integer, Object> ();
+          forced.put (p, values); }
+        for (Map.Entry<Integer, Object> v : c.getValue ().entrySet ()) {
+          int cp = v.getKey ();
+          if (! values.containsKey (cp)) {
+            values.put (cp, ours ? repertoire.getObject (cp, p) : v.getValue ()); }}}}
+
+    Ucd u = new Ucd ();
+    u.description = description;
+    u.repertoire = repertoire.project (propertySet (name), forced).freeze ();
+    if (unihan) {
+      u.blocks = new Blocks ();
+      u.namedSequences = new NamedSequences (false);
+      u.namedSequencesProv = new NamedSequences (true);
+      u.normalizationCorrections = new NormalizationCorrections ();
+      u.standardizedVariants = new StandardizedVariants ();
+      u.cjkRadicals = new CJKRadicals ();
+      u.emojiSources = new EmojiSources ();
+      u.doNotEmit = new DoNotEmit (); }
+    else {
+      u.blocks = blocks;
+      u.namedSequences = namedSequences;
+      u.namedSequencesProv = namedSequencesProv;
+      u.normalizationCorrections = normalizationCorrections;
+      u.standardizedVariants = standardizedVariants;
+      u.cjkRadicals = cjkRadicals;
+      u.emojiSources = emojiSources;
+      u.doNotEmit = doNotEmit; }
+    return u;
+  }
+
+  private static boolean hasDependencies (LoadStep step, Set<UcdFile> loading) {
+    for (UcdFile f : step.after) {
+      if (loading.contains (f)) {
+        return true; }}
+    return false;
+  }
+
   public Ucd fromUCD (Version v, URL baseURL, Set<UcdFile> files) throws Exception {
 
     description = "Unicode " + v;
-    repertoire = new Repertoire ();
+    repertoire = Repertoire.create ();
+    repertoire.diagnostics = diagnostics;
     blocks = new Blocks ();
     namedSequences = new NamedSequences (false);
     namedSequencesProv = new NamedSequences (true);
@@ -1349,95 +2097,26 @@ public class Ucd {
     emojiSources = new EmojiSources ();
     doNotEmit = new DoNotEmit ();
     
-    if (files.contains (UcdFile.UnicodeData)) {
-      parseUnicodeData (v, baseURL); }
-    if (files.contains (UcdFile.DerivedBidiClass)) {
-      parseDerivedBidiClass (v, baseURL); }
-    if (files.contains (UcdFile.ArabicShaping)) {
-      parseArabicShaping (v, baseURL); }
-    if (files.contains (UcdFile.BidiBrackets)) {
-      parseBidiBrackets (v, baseURL); }
-    if (files.contains (UcdFile.BidiMirroring)) {
-      parseBidiMirroring (v, baseURL); }
-    if (files.contains (UcdFile.CaseFolding)) {
-      parseCaseFolding (v, baseURL); }
-    if (files.contains (UcdFile.CompositionExclusions)) {
-      parseCompositionExclusions (v, baseURL); }
-    if (files.contains (UcdFile.DerivedAge)) {
-      parseDerivedAge (v, baseURL); }
-    if (files.contains (UcdFile.EastAsianWidth)) {
-      parseEastAsianWidth (v, baseURL); }
-    if (files.contains (UcdFile.HangulSyllableType)) {
-      parseHangulSyllableType (v, baseURL); }
-    if (files.contains (UcdFile.IndicSyllabicCategory)) {
-      parseIndicSyllabicCategory (v, baseURL); }
-    if (files.contains (UcdFile.IndicMatraCategory)) {
-      parseIndicMatraCategory (v, baseURL); }
-    if (files.contains (UcdFile.IndicPositionalCategory)) {
-      parseIndicPositionalCategory (v, baseURL); }
-    if (files.contains (UcdFile.Jamo)) {
-      parseJamo (v, baseURL); }
-    if (files.contains (UcdFile.LineBreak)) {
-      parseLineBreak (v, baseURL); }
-    if (files.contains (UcdFile.PropList)) {
-      parsePropList (v, baseURL); }
-    if (files.contains (UcdFile.Scripts)) {
-      parseScripts (v, baseURL); }
-    if (files.contains (UcdFile.ScriptExtensions)) {
-      parseScriptExtensions (v, baseURL); }
-    if (files.contains (UcdFile.SpecialCasing)) {
-      parseSpecialCasing (v, baseURL); }
-    if (files.contains (UcdFile.DerivedCoreProperties)) {
-      parseDerivedCoreProperties (v, baseURL); }
-    if (files.contains (UcdFile.DerivedNormalizationProps)) {
-      parseDerivedNormalizationProperties (v, baseURL); }
-
-    if (files.contains (UcdFile.GraphemeBreakProperty)) {
-      parseGraphemeBreak (v, baseURL); }
-    if (files.contains (UcdFile.WordBreakProperty)) {
-      parseWordBreak (v, baseURL); }
-    if (files.contains (UcdFile.SentenceBreakProperty)) {
-      parseSentenceBreak (v, baseURL); }
-
-    if (files.contains (UcdFile.EquivalentUnifiedIdeograph)) {
-      parseEquivalentUnifiedIdeograph (v, baseURL); }
-
-    if (files.contains (UcdFile.Unihan)) {
-      parseUnihan (v, baseURL, false); }
-    if (files.contains (UcdFile.UnihanNumeric)) {
-      parseUnihan (v, baseURL, true); }
-
-    if (files.contains (UcdFile.Blocks)) {
-      parseBlocks (v, baseURL); }
-    if (files.contains (UcdFile.NamedSequences)) {
-      parseNamedSequences (v, baseURL); }
-    if (files.contains (UcdFile.NamedSequencesProv)) {
-      parseNamedSequencesProv (v, baseURL); }
-    if (files.contains (UcdFile.NormalizationCorrections)) {
-      parseNormalizationCorrections (v, baseURL); }
-    if (files.contains (UcdFile.StandardizedVariants)) {
-      parseStandardizedVariants (v, baseURL); }
-    if (files.contains (UcdFile.CJKRadicalNumbers)) {
-      parseCJKRadicals (v, baseURL); }
-    if (files.contains (UcdFile.EmojiSources)) {
-      parseEmojiSources (v, baseURL); }
-    if (files.contains (UcdFile.TangutSources)) {
-      parseTangutSources (v, baseURL); }
-    if (files.contains (UcdFile.NushuSources)) {
-      parseNushuSources (v, baseURL); }
-    if (files.contains (UcdFile.NameAliases)) {
-      parseNameAliases (v, baseURL); }
-
-    if (files.contains (UcdFile.DoNotEmit)) {
-      parseDoNotEmit (v, baseURL); }
-    
-    if (files.contains (UcdFile.VerticalOrientation)) {
-      parseVerticalOrientation (v, baseURL); }
-
-    if (files.contains (UcdFile.EmojiData)) {
-      parseEmojiData (v, baseURL); }
-    if (files.contains (UcdFile.EmojiVariationSequences)) {
-      parseEmojiVariationSequences (v, baseURL); }
+    parsePropertyValueAliases (v, baseURL);
+    if (! Collections.disjoint (files, UcdFile.unihanFiles)
+        && ! UcdFile.unihanFiles.containsAll (files)) {
+      repertoire.keepReplaced (Property.nt, Property.nv); }
+
+    loadProfile = new LoadProfile (description);
+    List<LoadStep> steps = new ArrayList<LoadStep> ();
+    List<LoadProfile.Step> profiles = new ArrayList<LoadProfile.Step> ();
+    for (LoadStep step : loadSteps (v, baseURL)) {
+      if (files.contains (step.file)) {
+        steps.add (step);
+        profiles.add (loadProfile.add (step.file.toString ())); }}
+
+    if (parallelLoad) {
+      loadInParallel (steps, profiles); }
+    else {
+      for (int i = 0; i < steps.size (); i++) {
+        repertoire.currentFile = steps.get (i).file.toString ();
+        load (steps.get (i), profiles.get (i)); }}
+    repertoire.currentFile = null;
 
     normalize ();
 
@@ -1523,592 +2202,359 @@ public class Ucd {
     return s;
   }
 
-  public Ucd fromISO2001 (URL baseURL) throws Exception {
-
-    description = "From ISO 10646:2001 at " + baseURL;
-    repertoire = new Repertoire ();
-    blocks = new Blocks ();
-    namedSequences = new NamedSequences (false);
-    namedSequencesProv = new NamedSequences (true);
-    normalizationCorrections = new NormalizationCorrections ();
-
-    Loader l =       new Loader () {
-      public void process (String[] fields) {
-        // UCODE:  1-5  OCTET
-        // GCODE:  6-12 OCTET
-        // TCODE: 13-19 OCTET
-        // JCODE: 20-26 OCTET
-        // KCODE: 27-33 OCTET
-        // VCODE: 34-40 OCTET
-        // HCODE: 41-47 OCTET
-        // KPCODE:48-55 OCTET
-
-        int cp = Integer.parseInt (fields [0], 16);
-        repertoire.put (cp, cp, Property.type, "char");
-        repertoire.put (cp, cp, Property.kCompatibilityVariant, "");
-        repertoire.put (cp, cp, Property.uideo, "Y");
-
-        repertoire.put (cp, cp, Property.kIRG_GSource, cleanGSource (fields [1]));
-        repertoire.put (cp, cp, Property.kIRG_TSource, cleanTSource (fields [2]));
-        repertoire.put (cp, cp, Property.kIRG_JSource, cleanJSource (fields [3]));
-        repertoire.put (cp, cp, Property.kIRG_KSource, cleanKSource (fields [4], true));
-        repertoire.put (cp, cp, Property.kIRG_KPSource, cleanKPSource (fields [7]));
-        repertoire.put (cp, cp, Property.kIRG_VSource, cleanVSource (fields [5]));
-        repertoire.put (cp, cp, Property.kIRG_HSource, cleanHSource (fields [6]));
-        repertoire.put (cp, cp, Property.kIRG_USource, ""); }};
-
-    Parser.parseTabularFileWithHeader (baseURL, "CJKUA_SR.TXT", "US-ASCII", new int[] {1, 6, 13, 20, 27, 34, 41, 48, 56},  l);
-    Parser.parseTabularFileWithHeader (baseURL, "CJKB_SR.TXT", "US-ASCII", new int[] {1, 6, 13, 20, 27, 34, 41, 48, 56},  l);
-
-
-    Parser.parseTabularFileWithHeader (baseURL, "CJKC0SR.TXT", "US-ASCII", new int[] {1, 7, 13, 21, 29, 37, 45},
-      new Loader () {
-        public void process (String[] fields) {
-          // CJK Compatibility Ideograph Code Position: 01-06 OCTET
-          // CJK Unified Ideograph Code Position: 07-12 OCTET
-          // Kanji J3 and J4 Sources: 13-20 OCTET
-          // Hanja K0 source: 21-28 OCTET
-          // Unicode U0 source: 29-36
-          // Hanja KP1 source: 37-44 OCTET
-
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "U+" + Ucd.toU (Integer.parseInt (fields [1], 16)));
-          repertoire.put (cp, cp, Property.uideo, "N");
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, "");
-          repertoire.put (cp, cp, Property.kIRG_TSource, "");
-          repertoire.put (cp, cp, Property.kIRG_JSource, cleanTSource (fields [2]));
-          repertoire.put (cp, cp, Property.kIRG_KSource, cleanHSource (fields [3]));
-          repertoire.put (cp, cp, Property.kIRG_KPSource, cleanKPSource (fields [5]));
-          repertoire.put (cp, cp, Property.kIRG_VSource, "");
-          repertoire.put (cp, cp, Property.kIRG_HSource, "");
-          repertoire.put (cp, cp, Property.kIRG_USource, cleanKPSource (fields [4])); }});
-
-    Parser.parseTabularFileWithHeader (baseURL, "CJKC_SR.TXT", "US-ASCII", new int[] {1, 7, 13, 21, 28, 36},
-      new Loader () {
-        public void process (String[] fields) {
-          // CJK Compatibility Ideograph Code Position: 01-06 OCTET
-          // CJK Unified Ideograph Code Position: 07-12 OCTET
-          // Hanzi T3, T4, T5, T6, T7 and TF sources: 13-20 OCTET
-          // Hanzi H source: 21-27 OCTET
-          // Hanja KP1 source: 28-35 OCTET
-
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "U+" + Ucd.toU (Integer.parseInt (fields [1], 16)));
-          repertoire.put (cp, cp, Property.uideo, "N");
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, "");
-          repertoire.put (cp, cp, Property.kIRG_TSource, cleanTSource (fields [2]));
-          repertoire.put (cp, cp, Property.kIRG_JSource, "");
-          repertoire.put (cp, cp, Property.kIRG_KSource, "");
-          repertoire.put (cp, cp, Property.kIRG_KPSource, cleanKPSource (fields [4]));
-          repertoire.put (cp, cp, Property.kIRG_VSource, "");
-          repertoire.put (cp, cp, Property.kIRG_HSource, cleanHSource (fields [3]));
-          repertoire.put (cp, cp, Property.kIRG_USource, ""); }});
+  // How the value of a field of an ISO source table is cleaned up.
+  enum IsoClean {
+    NONE, G, T, J, K, K_FIX_K4, KP, V, H, U, M,
+    // the field is a code point, the value is "U+" followed by it
+    CODE_POINT;
+
+    String apply (String s) {
+      switch (this) {
+        case G: return cleanGSource (s);
+        case T: return cleanTSource (s);
+        case J: return cleanJSource (s);
+        case K: return cleanKSource (s, false);
+        case K_FIX_K4: return cleanKSource (s, true);
+        case KP: return cleanKPSource (s);
+        case V: return cleanVSource (s);
+        case H: return cleanHSource (s);
+        case U: return cleanUSource (s);
+        case M: return cleanMSource (s);
+        case CODE_POINT: return "U+" + Ucd.toU (Integer.parseInt (s, 16));
+        default: return s; }
+    }
+  }
 
-    return this;
+  /** A property given by an ISO source table: either the cleaned up
+   *  value of one of its fields, or a constant value.
+   */
+  static final class IsoField {
+    final Property property;
+    final int field;
+    final IsoClean clean;
+    final String value;
+
+    IsoField (Property property, int field, IsoClean clean, String value) {
+      this.property = property;
+      this.field = field;
+      this.clean = clean;
+      this.value = value;
+    }
   }
 
-  public Ucd fromISO2003 (URL baseURL) throws Exception {
+  static IsoField field (Property p, int field, IsoClean clean) {
+    return new IsoField (p, field, clean, null);
+  }
 
-    description = "From ISO 10646:2003 at " + baseURL;
-    repertoire = new Repertoire ();
-    blocks = new Blocks ();
-    namedSequences = new NamedSequences (false);
-    namedSequencesProv = new NamedSequences (true);
-    normalizationCorrections = new NormalizationCorrections ();
+  static IsoField field (Property p, int field) {
+    return new IsoField (p, field, IsoClean.NONE, null);
+  }
 
-    Parser.parseSemiDelimitedFileWithHeader (baseURL, "CJKU_SR.TXT", "US-ASCII",
-      new Loader () {
-        public void process (String[] fields) {
-          // 1st field: CJK Unified Ideograph Code Position
-          // 2nd field: Hanzi G sources
-          // 3rd field: Hanzi T sources
-          // 4th field: Kanji J sources
-          // 5th field: Hanja K sources
-          // 6th field: ChuNom V sources
-          // 7th field: Hanzi H source
-          // 8th field: Hanja KP sources
+  static IsoField value (Property p, String v) {
+    return new IsoField (p, -1, null, v);
+  }
 
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "");
-          repertoire.put (cp, cp, Property.uideo, "Y");
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, cleanGSource (fields [1]));
-          repertoire.put (cp, cp, Property.kIRG_TSource, cleanTSource (fields [2]));
-          repertoire.put (cp, cp, Property.kIRG_JSource, cleanJSource (fields [3]));
-          repertoire.put (cp, cp, Property.kIRG_KSource, cleanKSource (fields [4], false));
-          repertoire.put (cp, cp, Property.kIRG_KPSource, cleanKPSource (fields [7]));
-          repertoire.put (cp, cp, Property.kIRG_VSource, cleanVSource (fields [5]));
-          repertoire.put (cp, cp, Property.kIRG_HSource, cleanHSource (fields [6]));
-          repertoire.put (cp, cp, Property.kIRG_USource, ""); }});
-
-    Parser.parseSemiDelimitedFileWithHeader (baseURL, "CJKC_SR.TXT", "US-ASCII",
-      new Loader () {
-        public void process (String[] fields) {
-          // 1st field: CJK Compatibility Ideograph Code Position
-          // 2nd field: CJK Unified Ideograph Corresponding Code Position
-          // 3rd field: Hanzi T sources
-          // 4th field: Hanzi H source
-          // 5th field: Kanji J sources
-          // 6th field: Hanja K source
-          // 7th field: Unicode U source
-          // 8th field: Hanja KP source
+  /** The layout of a table of an ISO release: its file, whose first
+   *  field is a code point, and the properties given by each line. The
+   *  file is either ';' delimited after a header, or, if 'cols' is not
+   *  null, has fixed columns (see Parser.parseFixedColumnFile).
+   */
+  static final class IsoTable {
+    final String filename;
+    final int[] cols;
+    final IsoField[] fields;
+    final int nbFields;
+
+    IsoTable (String filename, int[] cols, IsoField... fields) {
+      this.filename = filename;
+      this.cols = cols;
+      this.fields = fields;
+      int n = 1;
+      for (IsoField f : fields) {
+        n = Math.max (n, f.field + 1); }
+      this.nbFields = n;
+    }
+  }
 
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "U+" + Ucd.toU (Integer.parseInt (fields [1], 16)));
-          repertoire.put (cp, cp, Property.uideo, "N");
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, "");
-          repertoire.put (cp, cp, Property.kIRG_TSource, cleanTSource (fields [2]));
-          repertoire.put (cp, cp, Property.kIRG_JSource, cleanJSource (fields [4]));
-          repertoire.put (cp, cp, Property.kIRG_KSource, cleanKSource (fields [5], false));
-          repertoire.put (cp, cp, Property.kIRG_KPSource, cleanKPSource (fields [7]));
-          repertoire.put (cp, cp, Property.kIRG_VSource, "");
-          repertoire.put (cp, cp, Property.kIRG_HSource, cleanHSource (fields [3]));
-          repertoire.put (cp, cp, Property.kIRG_USource, cleanUSource (fields [6])); }});
+  static final int[] iso2001UnifiedCols = {1, 6, 13, 20, 27, 34, 41, 48, 56};
+
+  // UCODE:  1-5  OCTET
+  // GCODE:  6-12 OCTET
+  // TCODE: 13-19 OCTET
+  // JCODE: 20-26 OCTET
+  // KCODE: 27-33 OCTET
+  // VCODE: 34-40 OCTET
+  // HCODE: 41-47 OCTET
+  // KPCODE:48-55 OCTET
+  static final IsoField[] iso2001Unified = {
+    value (Property.type, "char"),
+    value (Property.kCompatibilityVariant, ""),
+    value (Property.uideo, "Y"),
+    field (Property.kIRG_GSource, 1, IsoClean.G),
+    field (Property.kIRG_TSource, 2, IsoClean.T),
+    field (Property.kIRG_JSource, 3, IsoClean.J),
+    field (Property.kIRG_KSource, 4, IsoClean.K_FIX_K4),
+    field (Property.kIRG_KPSource, 7, IsoClean.KP),
+    field (Property.kIRG_VSource, 5, IsoClean.V),
+    field (Property.kIRG_HSource, 6, IsoClean.H),
+    value (Property.kIRG_USource, "") };
+
+  static final IsoTable[] iso2001 = {
+    new IsoTable ("CJKUA_SR.TXT", iso2001UnifiedCols, iso2001Unified),
+    new IsoTable ("CJKB_SR.TXT", iso2001UnifiedCols, iso2001Unified),
+
+    // CJK Compatibility Ideograph Code Position: 01-06 OCTET
+    // CJK Unified Ideograph Code Position: 07-12 OCTET
+    // Kanji J3 and J4 Sources: 13-20 OCTET
+    // Hanja K0 source: 21-28 OCTET
+    // Unicode U0 source: 29-36
+    // Hanja KP1 source: 37-44 OCTET
+    new IsoTable ("CJKC0SR.TXT", new int[] {1, 7, 13, 21, 29, 37, 45},
+      value (Property.type, "char"),
+      field (Property.kCompatibilityVariant, 1, IsoClean.CODE_POINT),
+      value (Property.uideo, "N"),
+      value (Property.kIRG_GSource, ""),
+      value (Property.kIRG_TSource, ""),
+      field (Property.kIRG_JSource, 2, IsoClean.T),
+      field (Property.kIRG_KSource, 3, IsoClean.H),
+      field (Property.kIRG_KPSource, 5, IsoClean.KP),
+      value (Property.kIRG_VSource, ""),
+      value (Property.kIRG_HSource, ""),
+      field (Property.kIRG_USource, 4, IsoClean.KP)),
+
+    // CJK Compatibility Ideograph Code Position: 01-06 OCTET
+    // CJK Unified Ideograph Code Position: 07-12 OCTET
+    // Hanzi T3, T4, T5, T6, T7 and TF sources: 13-20 OCTET
+    // Hanzi H source: 21-27 OCTET
+    // Hanja KP1 source: 28-35 OCTET
+    new IsoTable ("CJKC_SR.TXT", new int[] {1, 7, 13, 21, 28, 36},
+      value (Property.type, "char"),
+      field (Property.kCompatibilityVariant, 1, IsoClean.CODE_POINT),
+      value (Property.uideo, "N"),
+      value (Property.kIRG_GSource, ""),
+      field (Property.kIRG_TSource, 2, IsoClean.T),
+      value (Property.kIRG_JSource, ""),
+      value (Property.kIRG_KSource, ""),
+      field (Property.kIRG_KPSource, 4, IsoClean.KP),
+      value (Property.kIRG_VSource, ""),
+      field (Property.kIRG_HSource, 3, IsoClean.H),
+      value (Property.kIRG_USource, "")) };
+
+  // 1st field: CJK Unified Ideograph Code Position
+  // 2nd field: Hanzi G sources
+  // 3rd field: Hanzi T sources
+  // 4th field: Kanji J sources
+  // 5th field: Hanja K sources
+  // 6th field: ChuNom V sources
+  // 7th field: Hanzi H source
+  // 8th field: Hanja KP sources
+  // 9th field: Unicode U sources (since amendment 1)
+  // 10th field: Hanzi M source (since amendment 5)
+  static IsoTable iso2003Unified (IsoField u, IsoField m) {
+    List<IsoField> fields = new ArrayList<IsoField> (Arrays.asList (
+      value (Property.type, "char"),
+      value (Property.kCompatibilityVariant, ""),
+      value (Property.uideo, "Y"),
+      field (Property.kIRG_GSource, 1, IsoClean.G),
+      field (Property.kIRG_TSource, 2, IsoClean.T),
+      field (Property.kIRG_JSource, 3, IsoClean.J),
+      field (Property.kIRG_KSource, 4, IsoClean.K),
+      field (Property.kIRG_KPSource, 7, IsoClean.KP),
+      field (Property.kIRG_VSource, 5, IsoClean.V),
+      field (Property.kIRG_HSource, 6, IsoClean.H),
+      u));
+    if (m != null) {
+      fields.add (m); }
+    return new IsoTable ("CJKU_SR.TXT", null, fields.toArray (new IsoField [fields.size ()]));
+  }
+
+  // 1st field: CJK Compatibility Ideograph Code Position
+  // 2nd field: CJK Unified Ideograph Corresponding Code Position
+  // 3rd field: Hanzi T sources
+  // 4th field: Hanzi H source
+  // 5th field: Kanji J sources
+  // 6th field: Hanja K source
+  // 7th field: Unicode U source
+  // 8th field: Hanja KP source
+  static IsoTable iso2003Compatibility (IsoField m) {
+    List<IsoField> fields = new ArrayList<IsoField> (Arrays.asList (
+      value (Property.type, "char"),
+      field (Property.kCompatibilityVariant, 1, IsoClean.CODE_POINT),
+      value (Property.uideo, "N"),
+      value (Property.kIRG_GSource, ""),
+      field (Property.kIRG_TSource, 2, IsoClean.T),
+      field (Property.kIRG_JSource, 4, IsoClean.J),
+      field (Property.kIRG_KSource, 5, IsoClean.K),
+      field (Property.kIRG_KPSource, 7, IsoClean.KP),
+      value (Property.kIRG_VSource, ""),
+      field (Property.kIRG_HSource, 3, IsoClean.H),
+      field (Property.kIRG_USource, 6, IsoClean.U)));
+    if (m != null) {
+      fields.add (m); }
+    return new IsoTable ("CJKC_SR.TXT", null, fields.toArray (new IsoField [fields.size ()]));
+  }
+
+  // 1st field: CJK Unified Ideograph Code Position
+  // 2nd field; Radical Stroke index
+  // 3rd field: Hanzi G sources
+  // 4th field: Hanzi T sources
+  // 5th field: Kanji J sources
+  // 6th field: Hanja K sources
+  // 7th field: ChuNom V sources
+  // 8th field: Hanzi H source
+  // 9th field: Hanja KP sources
+  // 10th field: Unicode U sources
+  // 11th field: Unicode M source
+  static final IsoTable iso2003Amd8Unified =
+    new IsoTable ("CJKU_SR.TXT", null,
+      value (Property.type, "char"),
+      value (Property.kCompatibilityVariant, ""),
+      value (Property.uideo, "Y"),
+      field (Property.kIRG_RSIndex, 1),
+      field (Property.kIRG_GSource, 2),
+      field (Property.kIRG_TSource, 3),
+      field (Property.kIRG_JSource, 4),
+      field (Property.kIRG_KSource, 5),
+      field (Property.kIRG_VSource, 6),
+      field (Property.kIRG_HSource, 7),
+      field (Property.kIRG_KPSource, 8),
+      field (Property.kIRG_USource, 9),
+      field (Property.kIRG_MSource, 10));
+
+  // UCODE         1-5  BYTE
+  // GSOURCE       6-8  BYTE
+  // TSOURCE      9-11  BYTE
+  // JSOURCE     12-14  BYTE
+  // HSOURCE     15-17  BYTE
+  // KSOURCE     18-20  BYTE
+  // MSOURCE     21-23  BYTE
+  // KPSOURCE    24-26  BYTE
+  // Category       27  byte
+  static final IsoTable iiCore =
+    new IsoTable ("IICORE.txt", new int[] {1, 6, 9, 12, 15, 18, 21, 24, 27, 28},
+      value (Property.kIICore, "2.1"));
+
+  static final IsoTable[] iso2003 = {
+    iso2003Unified (value (Property.kIRG_USource, ""), null),
+    iso2003Compatibility (null) };
+
+  static final IsoTable[] iso2003Amd1234 = {
+    iso2003Unified (field (Property.kIRG_USource, 8, IsoClean.U), null),
+    iso2003Compatibility (null),
+    iiCore };
+
+  static final IsoTable[] iso2003Amd5 = {
+    iso2003Unified (field (Property.kIRG_USource, 8, IsoClean.U), field (Property.kIRG_MSource, 9, IsoClean.M)),
+    iso2003Compatibility (null),
+    iiCore };
+
+  static final IsoTable[] iso2003Amd6 = {
+    iso2003Unified (field (Property.kIRG_USource, 8, IsoClean.U), field (Property.kIRG_MSource, 9, IsoClean.M)),
+    iso2003Compatibility (value (Property.kIRG_MSource, "")),
+    iiCore };
+
+  static final IsoTable[] iso2003Amd8 = {
+    iso2003Amd8Unified,
+    iso2003Compatibility (value (Property.kIRG_MSource, "")),
+    iiCore };
+
+  static final IsoTable[] iso2011 = {
+    iso2003Amd8Unified,
+
+    // 1st field: CJK Compatibility Ideograph Code Position
+    // 2nd field: CJK Unified Ideograph Corresponding Code Position
+    // 3rd field; Radical Stroke index
+    // 4th field: Hanzi T sources
+    // 5th field: Hanzi H source
+    // 6th field: Kanji J sources
+    // 7th field: Hanja K source
+    // 8th field: Unicode U source
+    // 9th field: Hanja KP source
+    new IsoTable ("CJKC_SR.TXT", null,
+      value (Property.type, "char"),
+      field (Property.kCompatibilityVariant, 1, IsoClean.CODE_POINT),
+      value (Property.uideo, "N"),
+      field (Property.kIRG_RSIndex, 2),
+      value (Property.kIRG_GSource, ""),
+      field (Property.kIRG_TSource, 3),
+      field (Property.kIRG_JSource, 5),
+      field (Property.kIRG_KSource, 6),
+      field (Property.kIRG_KPSource, 8),
+      value (Property.kIRG_VSource, ""),
+      field (Property.kIRG_HSource, 4),
+      field (Property.kIRG_USource, 7),
+      value (Property.kIRG_MSource, "")),
+
+    iiCore };
+
+  // The values of each property are collected over the whole table,
+  // and stored in a single batch.
+  private void loadIsoTable (URL baseURL, final IsoTable table) throws Exception {
+    final PropertyColumn[] columns = new PropertyColumn [table.fields.length];
+    for (int i = 0; i < columns.length; i++) {
+      columns [i] = new PropertyColumn (table.fields [i].property); }
+
+    FieldLoader l = new FieldLoader () {
+      public void process (Fields fields) {
+        if (fields.size () < table.nbFields) {
+          diagnostics.record (Diagnostics.Kind.FIELD_COUNT, table.filename, currentLine, -1,
+                              null, fields.size () + " fields when " + table.nbFields + " are expected");
+          return; }
+        CharSequence u = fields.get (0);
+        int cp = Parser.parseHex (u, 0, u.length ());
+        for (int i = 0; i < columns.length; i++) {
+          IsoField f = table.fields [i];
+          columns [i].add (cp, cp, f.field == -1 ? f.value : f.clean.apply (fields.getString (f.field))); }}};
+
+    if (table.cols == null) {
+      Parser.parseDelimitedFile (baseURL, table.filename, l, ';', true, "US-ASCII"); }
+    else {
+      Parser.parseFixedColumnFile (baseURL, table.filename, "US-ASCII", table.cols, l); }
 
-    return this;
+    for (PropertyColumn c : columns) {
+      repertoire.applyBatch (c); }
   }
 
-  public Ucd fromISO2003Amd1234 (URL baseURL, String label) throws Exception {
-
-    description = "From " + label + " at " + baseURL;
-    repertoire = new Repertoire ();
+  private Ucd fromISOTables (String description, URL baseURL, IsoTable[] tables) throws Exception {
+    this.description = description;
+    repertoire = Repertoire.create ();
     blocks = new Blocks ();
     namedSequences = new NamedSequences (false);
     namedSequencesProv = new NamedSequences (true);
     normalizationCorrections = new NormalizationCorrections ();
 
-    Parser.parseSemiDelimitedFileWithHeader (baseURL, "CJKU_SR.TXT", "US-ASCII",
-      new Loader () {
-        public void process (String[] fields) {
-          // 1st field: CJK Unified Ideograph Code Position
-          // 2nd field: Hanzi G sources
-          // 3rd field: Hanzi T sources
-          // 4th field: Kanji J sources
-          // 5th field: Hanja K sources
-          // 6th field: ChuNom V sources
-          // 7th field: Hanzi H source
-          // 8th field: Hanja KP sources
-          // 9th field: Unicode U sources
-
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "");
-          repertoire.put (cp, cp, Property.uideo, "Y");
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, cleanGSource (fields [1]));
-          repertoire.put (cp, cp, Property.kIRG_TSource, cleanTSource (fields [2]));
-          repertoire.put (cp, cp, Property.kIRG_JSource, cleanJSource (fields [3]));
-          repertoire.put (cp, cp, Property.kIRG_KSource, cleanKSource (fields [4], false));
-          repertoire.put (cp, cp, Property.kIRG_KPSource, cleanKPSource (fields [7]));
-          repertoire.put (cp, cp, Property.kIRG_VSource, cleanVSource (fields [5]));
-          repertoire.put (cp, cp, Property.kIRG_HSource, cleanHSource (fields [6]));
-          repertoire.put (cp, cp, Property.kIRG_USource, cleanUSource (fields [8])); }});
-
-    Parser.parseSemiDelimitedFileWithHeader (baseURL, "CJKC_SR.TXT", "US-ASCII",
-      new Loader () {
-        public void process (String[] fields) {
-          // 1st field: CJK Compatibility Ideograph Code Position
-          // 2nd field: CJK Unified Ideograph Corresponding Code Position
-          // 3rd field: Hanzi T sources
-          // 4th field: Hanzi H source
-          // 5th field: Kanji J sources
-          // 6th field: Hanja K source
-          // 7th field: Unicode U source
-          // 8th field: Hanja KP source
-
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "U+" + Ucd.toU (Integer.parseInt (fields [1], 16)));
-          repertoire.put (cp, cp, Property.uideo, "N");
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, "");
-          repertoire.put (cp, cp, Property.kIRG_TSource, cleanTSource (fields [2]));
-          repertoire.put (cp, cp, Property.kIRG_JSource, cleanJSource (fields [4]));
-          repertoire.put (cp, cp, Property.kIRG_KSource, cleanKSource (fields [5], false));
-          repertoire.put (cp, cp, Property.kIRG_KPSource, cleanKPSource (fields [7]));
-          repertoire.put (cp, cp, Property.kIRG_VSource, "");
-          repertoire.put (cp, cp, Property.kIRG_HSource, cleanHSource (fields [3]));
-          repertoire.put (cp, cp, Property.kIRG_USource, cleanUSource (fields [6])); }});
-
-    Parser.parseTabularFileWithHeader (baseURL, "IICORE.txt", "US-ASCII",
-                                       new int[] {1, 6, 9, 12, 15, 18, 21, 24, 27, 28},
-      new Loader () {
-       public void process (String[] fields) {
-         // UCODE         1-5  BYTE
-         // GSOURCE       6-8  BYTE
-         // TSOURCE      9-11  BYTE
-         // JSOURCE     12-14  BYTE
-         // HSOURCE     15-17  BYTE
-         // KSOURCE     18-20  BYTE
-         // MSOURCE     21-23  BYTE
-         // KPSOURCE    24-26  BYTE
-         // Category       27  byte
-
-         int cp = Integer.parseInt (fields [0], 16);
-
-         repertoire.put (cp, cp, Property.kIICore, "2.1"); }});
+    for (IsoTable table : tables) {
+      loadIsoTable (baseURL, table); }
 
     return this;
   }
 
-  public Ucd fromISO2003Amd5(URL baseURL, String label) throws Exception {
-
-    description = "From " + label + " at " + baseURL;
-    repertoire = new Repertoire ();
-    blocks = new Blocks ();
-    namedSequences = new NamedSequences (false);
-    namedSequencesProv = new NamedSequences (true);
-    normalizationCorrections = new NormalizationCorrections ();
-
-    Parser.parseSemiDelimitedFileWithHeader (baseURL, "CJKU_SR.TXT", "US-ASCII",
-      new Loader () {
-        public void process (String[] fields) {
-          // 1st field: CJK Unified Ideograph Code Position
-          // 2nd field: Hanzi G sources
-          // 3rd field: Hanzi T sources
-          // 4th field: Kanji J sources
-          // 5th field: Hanja K sources
-          // 6th field: ChuNom V sources
-          // 7th field: Hanzi H source
-          // 8th field: Hanja KP sources
-          // 9th field: Unicode U sources
-          // 10th field: Hanzi M source
+  public Ucd fromISO2001 (URL baseURL) throws Exception {
+    return fromISOTables ("From ISO 10646:2001 at " + baseURL, baseURL, iso2001);
+  }
 
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "");
-          repertoire.put (cp, cp, Property.uideo, "Y");
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, cleanGSource (fields [1]));
-          repertoire.put (cp, cp, Property.kIRG_TSource, cleanTSource (fields [2]));
-          repertoire.put (cp, cp, Property.kIRG_JSource, cleanJSource (fields [3]));
-          repertoire.put (cp, cp, Property.kIRG_KSource, cleanKSource (fields [4], false));
-          repertoire.put (cp, cp, Property.kIRG_KPSource, cleanKPSource (fields [7]));
-          repertoire.put (cp, cp, Property.kIRG_VSource, cleanVSource (fields [5]));
-          repertoire.put (cp, cp, Property.kIRG_HSource, cleanHSource (fields [6]));
-          repertoire.put (cp, cp, Property.kIRG_USource, cleanUSource (fields [8]));
-          repertoire.put (cp, cp, Property.kIRG_MSource, cleanMSource (fields [9])); }});
-
-    Parser.parseSemiDelimitedFileWithHeader (baseURL, "CJKC_SR.TXT", "US-ASCII",
-      new Loader () {
-        public void process (String[] fields) {
-          // 1st field: CJK Compatibility Ideograph Code Position
-          // 2nd field: CJK Unified Ideograph Corresponding Code Position
-          // 3rd field: Hanzi T sources
-          // 4th field: Hanzi H source
-          // 5th field: Kanji J sources
-          // 6th field: Hanja K source
-          // 7th field: Unicode U source
-          // 8th field: Hanja KP source
+  public Ucd fromISO2003 (URL baseURL) throws Exception {
+    return fromISOTables ("From ISO 10646:2003 at " + baseURL, baseURL, iso2003);
+  }
 
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "U+" + Ucd.toU (Integer.parseInt (fields [1], 16)));
-          repertoire.put (cp, cp, Property.uideo, "N");
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, "");
-          repertoire.put (cp, cp, Property.kIRG_TSource, cleanTSource (fields [2]));
-          repertoire.put (cp, cp, Property.kIRG_JSource, cleanJSource (fields [4]));
-          repertoire.put (cp, cp, Property.kIRG_KSource, cleanKSource (fields [5], false));
-          repertoire.put (cp, cp, Property.kIRG_KPSource, cleanKPSource (fields [7]));
-          repertoire.put (cp, cp, Property.kIRG_VSource, "");
-          repertoire.put (cp, cp, Property.kIRG_HSource, cleanHSource (fields [3]));
-          repertoire.put (cp, cp, Property.kIRG_USource, cleanUSource (fields [6])); }});
-
-    Parser.parseTabularFileWithHeader (baseURL, "IICORE.txt", "US-ASCII",
-                                       new int[] {1, 6, 9, 12, 15, 18, 21, 24, 27, 28},
-      new Loader () {
-       public void process (String[] fields) {
-         // UCODE         1-5  BYTE
-         // GSOURCE       6-8  BYTE
-         // TSOURCE      9-11  BYTE
-         // JSOURCE     12-14  BYTE
-         // HSOURCE     15-17  BYTE
-         // KSOURCE     18-20  BYTE
-         // MSOURCE     21-23  BYTE
-         // KPSOURCE    24-26  BYTE
-         // Category       27  byte
-
-         int cp = Integer.parseInt (fields [0], 16);
-
-         repertoire.put (cp, cp, Property.kIICore, "2.1"); }});
+  public Ucd fromISO2003Amd1234 (URL baseURL, String label) throws Exception {
+    return fromISOTables ("From " + label + " at " + baseURL, baseURL, iso2003Amd1234);
+  }
 
-    return this;
+  public Ucd fromISO2003Amd5(URL baseURL, String label) throws Exception {
+    return fromISOTables ("From " + label + " at " + baseURL, baseURL, iso2003Amd5);
   }
 
   public Ucd fromISO2003Amd6(URL baseURL, String label) throws Exception {
-
-    description = "From " + label + " at " + baseURL;
-    repertoire = new Repertoire ();
-    blocks = new Blocks ();
-    namedSequences = new NamedSequences (false);
-    namedSequencesProv = new NamedSequences (true);
-    normalizationCorrections = new NormalizationCorrections ();
-
-    Parser.parseSemiDelimitedFileWithHeader (baseURL, "CJKU_SR.TXT", "US-ASCII",
-      new Loader () {
-        public void process (String[] fields) {
-//          1st field: CJK Unified Ideograph Code Position
-//          2nd field: Hanzi G sources
-//          3rd field: Hanzi T sources
-//          4th field: Kanji J sources
-//          5th field: Hanja K sources
-//          6th field: ChuNom V sources
-//          7th field: Hanzi H source
-//          8th field: Hanja KP sources
-//          9th field: Unicode U sources
-//          10th field: Hanzi M source
-
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "");
-          repertoire.put (cp, cp, Property.uideo, "Y");
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, cleanGSource (fields [1]));
-          repertoire.put (cp, cp, Property.kIRG_TSource, cleanTSource (fields [2]));
-          repertoire.put (cp, cp, Property.kIRG_JSource, cleanJSource (fields [3]));
-          repertoire.put (cp, cp, Property.kIRG_KSource, cleanKSource (fields [4], false));
-          repertoire.put (cp, cp, Property.kIRG_VSource, cleanVSource (fields [5]));
-          repertoire.put (cp, cp, Property.kIRG_HSource, cleanHSource (fields [6]));
-          repertoire.put (cp, cp, Property.kIRG_KPSource, cleanKPSource (fields [7]));
-          repertoire.put (cp, cp, Property.kIRG_USource, cleanUSource (fields [8]));
-          repertoire.put (cp, cp, Property.kIRG_MSource, cleanMSource (fields [9])); }});
-
-    Parser.parseSemiDelimitedFileWithHeader (baseURL, "CJKC_SR.TXT", "US-ASCII",
-      new Loader () {
-        public void process (String[] fields) {
-          // 1st field: CJK Compatibility Ideograph Code Position
-          // 2nd field: CJK Unified Ideograph Corresponding Code Position
-          // 3rd field: Hanzi T sources
-          // 4th field: Hanzi H source
-          // 5th field: Kanji J sources
-          // 6th field: Hanja K source
-          // 7th field: Unicode U source
-          // 8th field: Hanja KP source
-
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "U+" + Ucd.toU (Integer.parseInt (fields [1], 16)));
-          repertoire.put (cp, cp, Property.uideo, "N");
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, "");
-          repertoire.put (cp, cp, Property.kIRG_TSource, cleanTSource (fields [2]));
-          repertoire.put (cp, cp, Property.kIRG_JSource, cleanJSource (fields [4]));
-          repertoire.put (cp, cp, Property.kIRG_KSource, cleanKSource (fields [5], false));
-          repertoire.put (cp, cp, Property.kIRG_KPSource, cleanKPSource (fields [7]));
-          repertoire.put (cp, cp, Property.kIRG_VSource, "");
-          repertoire.put (cp, cp, Property.kIRG_HSource, cleanHSource (fields [3]));
-          repertoire.put (cp, cp, Property.kIRG_USource, cleanUSource (fields [6]));
-          repertoire.put (cp, cp, Property.kIRG_MSource, ""); }});
-
-    Parser.parseTabularFileWithHeader (baseURL, "IICORE.txt", "US-ASCII",
-                                       new int[] {1, 6, 9, 12, 15, 18, 21, 24, 27, 28},
-      new Loader () {
-       public void process (String[] fields) {
-         // UCODE         1-5  BYTE
-         // GSOURCE       6-8  BYTE
-         // TSOURCE      9-11  BYTE
-         // JSOURCE     12-14  BYTE
-         // HSOURCE     15-17  BYTE
-         // KSOURCE     18-20  BYTE
-         // MSOURCE     21-23  BYTE
-         // KPSOURCE    24-26  BYTE
-         // Category       27  byte
-
-         int cp = Integer.parseInt (fields [0], 16);
-
-         repertoire.put (cp, cp, Property.kIICore, "2.1"); }});
-
-    return this;
+    return fromISOTables ("From " + label + " at " + baseURL, baseURL, iso2003Amd6);
   }
 
   public Ucd fromISO2003Amd8(URL baseURL, String label) throws Exception {
-
-    description = "From " + label + " at " + baseURL;
-    repertoire = new Repertoire ();
-    blocks = new Blocks ();
-    namedSequences = new NamedSequences (false);
-    namedSequencesProv = new NamedSequences (true);
-    normalizationCorrections = new NormalizationCorrections ();
-
-    Parser.parseSemiDelimitedFileWithHeader (baseURL, "CJKU_SR.TXT", "US-ASCII",
-      new Loader () {
-        public void process (String[] fields) {
-//          1st field: CJK Unified Ideograph Code Position
-//          2nd field; Radical Stroke index
-//          3rd field: Hanzi G sources
-//          4th field: Hanzi T sources
-//          5th field: Kanji J sources
-//          6th field: Hanja K sources
-//          7th field: ChuNom V sources
-//          8th field: Hanzi H source
-//          9th field: Hanja KP sources
-//          10th field: Unicode U sources
-//          11th field: Unicode M source
-
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "");
-          repertoire.put (cp, cp, Property.uideo, "Y");
-
-          repertoire.put (cp, cp, Property.kIRG_RSIndex, fields[1]);
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, fields [2]);
-          repertoire.put (cp, cp, Property.kIRG_TSource, fields [3]);
-          repertoire.put (cp, cp, Property.kIRG_JSource, fields [4]);
-          repertoire.put (cp, cp, Property.kIRG_KSource, fields [5]);
-          repertoire.put (cp, cp, Property.kIRG_VSource, fields [6]);
-          repertoire.put (cp, cp, Property.kIRG_HSource, fields [7]);
-          repertoire.put (cp, cp, Property.kIRG_KPSource, fields [8]);
-          repertoire.put (cp, cp, Property.kIRG_USource, fields [9]);
-          repertoire.put (cp, cp, Property.kIRG_MSource, fields [10]); }});
-
-    Parser.parseSemiDelimitedFileWithHeader (baseURL, "CJKC_SR.TXT", "US-ASCII",
-      new Loader () {
-        public void process (String[] fields) {
-          // 1st field: CJK Compatibility Ideograph Code Position
-          // 2nd field: CJK Unified Ideograph Corresponding Code Position
-          // 3rd field: Hanzi T sources
-          // 4th field: Hanzi H source
-          // 5th field: Kanji J sources
-          // 6th field: Hanja K source
-          // 7th field: Unicode U source
-          // 8th field: Hanja KP source
-
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "U+" + Ucd.toU (Integer.parseInt (fields [1], 16)));
-          repertoire.put (cp, cp, Property.uideo, "N");
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, "");
-          repertoire.put (cp, cp, Property.kIRG_TSource, cleanTSource (fields [2]));
-          repertoire.put (cp, cp, Property.kIRG_JSource, cleanJSource (fields [4]));
-          repertoire.put (cp, cp, Property.kIRG_KSource, cleanKSource (fields [5], false));
-          repertoire.put (cp, cp, Property.kIRG_KPSource, cleanKPSource (fields [7]));
-          repertoire.put (cp, cp, Property.kIRG_VSource, "");
-          repertoire.put (cp, cp, Property.kIRG_HSource, cleanHSource (fields [3]));
-          repertoire.put (cp, cp, Property.kIRG_USource, cleanUSource (fields [6]));
-          repertoire.put (cp, cp, Property.kIRG_MSource, ""); }});
-
-    Parser.parseTabularFileWithHeader (baseURL, "IICORE.txt", "US-ASCII",
-                                       new int[] {1, 6, 9, 12, 15, 18, 21, 24, 27, 28},
-      new Loader () {
-       public void process (String[] fields) {
-         // UCODE         1-5  BYTE
-         // GSOURCE       6-8  BYTE
-         // TSOURCE      9-11  BYTE
-         // JSOURCE     12-14  BYTE
-         // HSOURCE     15-17  BYTE
-         // KSOURCE     18-20  BYTE
-         // MSOURCE     21-23  BYTE
-         // KPSOURCE    24-26  BYTE
-         // Category       27  byte
-
-         int cp = Integer.parseInt (fields [0], 16);
-
-         repertoire.put (cp, cp, Property.kIICore, "2.1"); }});
-
-    return this;
+    return fromISOTables ("From " + label + " at " + baseURL, baseURL, iso2003Amd8);
   }
 
   public Ucd fromISO2011 (URL baseURL, String label) throws Exception {
-
-    description = "From " + label + " at " + baseURL;
-    repertoire = new Repertoire ();
-    blocks = new Blocks ();
-    namedSequences = new NamedSequences (false);
-    namedSequencesProv = new NamedSequences (true);
-    normalizationCorrections = new NormalizationCorrections ();
-
-    Parser.parseSemiDelimitedFileWithHeader (baseURL, "CJKU_SR.TXT", "US-ASCII",
-      new Loader () {
-        public void process (String[] fields) {
-//          1st field: CJK Unified Ideograph Code Position
-//          2nd field; Radical Stroke index
-//          3rd field: Hanzi G sources
-//          4th field: Hanzi T sources
-//          5th field: Kanji J sources
-//          6th field: Hanja K sources
-//          7th field: ChuNom V sources
-//          8th field: Hanzi H source
-//          9th field: Hanja KP sources
-//          10th field: Unicode U sources
-//          11th field: Unicode M source
-
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "");
-          repertoire.put (cp, cp, Property.uideo, "Y");
-
-          repertoire.put (cp, cp, Property.kIRG_RSIndex, fields[1]);
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, fields [2]);
-          repertoire.put (cp, cp, Property.kIRG_TSource, fields [3]);
-          repertoire.put (cp, cp, Property.kIRG_JSource, fields [4]);
-          repertoire.put (cp, cp, Property.kIRG_KSource, fields [5]);
-          repertoire.put (cp, cp, Property.kIRG_VSource, fields [6]);
-          repertoire.put (cp, cp, Property.kIRG_HSource, fields [7]);
-          repertoire.put (cp, cp, Property.kIRG_KPSource, fields [8]);
-          repertoire.put (cp, cp, Property.kIRG_USource, fields [9]);
-          repertoire.put (cp, cp, Property.kIRG_MSource, fields [10]); }});
-
-    Parser.parseSemiDelimitedFileWithHeader (baseURL, "CJKC_SR.TXT", "US-ASCII",
-      new Loader () {
-        public void process (String[] fields) {
-//          1st field: CJK Compatibility Ideograph Code Position
-//          2nd field: CJK Unified Ideograph Corresponding Code Position
-//          3rd field; Radical Stroke index
-//          4th field: Hanzi T sources
-//          5th field: Hanzi H source
-//          6th field: Kanji J sources
-//          7th field: Hanja K source
-//          8th field: Unicode U source
-//          9th field: Hanja KP source
-
-
-          int cp = Integer.parseInt (fields [0], 16);
-          repertoire.put (cp, cp, Property.type, "char");
-          repertoire.put (cp, cp, Property.kCompatibilityVariant, "U+" + Ucd.toU (Integer.parseInt (fields [1], 16)));
-          repertoire.put (cp, cp, Property.uideo, "N");
-
-          repertoire.put (cp, cp, Property.kIRG_RSIndex, fields[2]);
-
-          repertoire.put (cp, cp, Property.kIRG_GSource, "");
-          repertoire.put (cp, cp, Property.kIRG_TSource, fields [3]);
-          repertoire.put (cp, cp, Property.kIRG_JSource, fields [5]);
-          repertoire.put (cp, cp, Property.kIRG_KSource, fields [6]);
-          repertoire.put (cp, cp, Property.kIRG_KPSource, fields [8]);
-          repertoire.put (cp, cp, Property.kIRG_VSource, "");
-          repertoire.put (cp, cp, Property.kIRG_HSource, fields [4]);
-          repertoire.put (cp, cp, Property.kIRG_USource, fields [7]);
-          repertoire.put (cp, cp, Property.kIRG_MSource, ""); }});
-
-    Parser.parseTabularFileWithHeader (baseURL, "IICORE.txt", "US-ASCII",
-                                       new int[] {1, 6, 9, 12, 15, 18, 21, 24, 27, 28},
-      new Loader () {
-       public void process (String[] fields) {
-         // UCODE         1-5  BYTE
-         // GSOURCE       6-8  BYTE
-         // TSOURCE      9-11  BYTE
-         // JSOURCE     12-14  BYTE
-         // HSOURCE     15-17  BYTE
-         // KSOURCE     18-20  BYTE
-         // MSOURCE     21-23  BYTE
-         // KPSOURCE    24-26  BYTE
-         // Category       27  byte
-
-         int cp = Integer.parseInt (fields [0], 16);
-
-         repertoire.put (cp, cp, Property.kIICore, "2.1"); }});
-
-    return this;
+    return fromISOTables ("From " + label + " at " + baseURL, baseURL, iso2011);
   }
 
   public Ucd fromISO (URL baseURL, String version) throws Exception {
@@ -2139,7 +2585,7 @@ public class Ucd {
 
   //----------------------------------------------------------------------------
   public class XMLHandler extends DefaultHandler {
-    HashMap<Property, String> groupProperties;
+    HashMap<Property, Object> groupProperties;
     String s;
     NamedSequences currentNamedSequences;
     Group currentGroup = null;
@@ -2150,12 +2596,13 @@ public class Ucd {
         s = new String (); }
 
       else if ("repertoire".equals (qname)) {
-        repertoire = new Repertoire (); }
+        repertoire = Repertoire.create (); }
 
       else if ("group".equals (qname)) {
-        groupProperties = new HashMap<Property, String> ();
+        groupProperties = new HashMap<Property, Object> ();
         for (int i = 0; i < at.getLength (); i++) {
-          groupProperties.put (Property.fromString (at.getLocalName (i)), at.getValue (i)); }}
+          Property p = Property.fromString (at.getLocalName (i));
+          groupProperties.put (p, CodePoints.valueOf (p, at.getValue (i))); }}
 
       else if ("char".equals (qname)
             || "reserved".equals (qname)
@@ -2272,88 +2719,127 @@ public class Ucd {
 
   //----------------------------------------------------------------------------
 
-  public void toXML (File file, Repertoire groups) throws Exception {
-    TransformerFactory tfactory = TransformerFactory.newInstance ();
-
-    if (tfactory.getFeature (SAXSource.FEATURE)) {
-      SAXTransformerFactory sfactory = (SAXTransformerFactory) tfactory;
+  // A file whose name ends in .gz or .zip gets the XML compressed in
+  // that format, on several threads; the entry of a zip is named after
+  // the file, with .xml in place of .zip.
+  static OutputStream xmlOutput (File file) throws IOException {
+    String name = file.getName ();
+    if (name.endsWith (".gz")) {
+      return ParallelDeflater.gzip (new BufferedOutputStream (new FileOutputStream (file))); }
+    if (name.endsWith (".zip")) {
+      return ParallelDeflater.zip (new BufferedOutputStream (new FileOutputStream (file)),
+                                   name.substring (0, name.length () - 4) + ".xml"); }
+    return new FileOutputStream (file);
+  }
+
+  // Writes the same bytes to each of its streams.
+  static class TeeOutputStream extends OutputStream {
+    final List<OutputStream> outs;
+
+    TeeOutputStream (List<OutputStream> outs) {
+      this.outs = outs;
+    }
 
-      // no transform; we just want a serializer
-      TransformerHandler ch = sfactory.newTransformerHandler ();
+    public void write (int b) throws IOException {
+      for (OutputStream out : outs) {
+        out.write (b); }
+    }
 
-      FileOutputStream f = new FileOutputStream (file);
-      ch.setResult (new StreamResult (f));
+    public void write (byte[] b, int off, int len) throws IOException {
+      for (OutputStream out : outs) {
+        out.write (b, off, len); }
+    }
 
-      Transformer transformer = ch.getTransformer ();
-      transformer.setOutputProperty (OutputKeys.INDENT, "yes");
-      transformer.setOutputProperty (OutputKeys.STANDALONE, "yes");
-      transformer.setOutputProperty (OutputKeys.METHOD, "xml");
+    public void flush () throws IOException {
+      for (OutputStream out : outs) {
+        out.flush (); }
+    }
+  }
 
-      ch.startDocument (); {
+  public void toXML (File file, Repertoire groups) throws Exception {
+    toXML (Collections.singletonList (file), groups);
+  }
+
+  // The document is serialized once, and written to all the files.
+  // If it cannot be written completely, nothing is left of it: a
+  // compressed file does not get the end of its stream, and the files
+  // are deleted.
+  public void toXML (List<File> files, Repertoire groups) throws Exception {
+    List<OutputStream> outs = new ArrayList<OutputStream> ();
+    boolean written = false;
+    try {
+      for (File file : files) {
+        outs.add (xmlOutput (file)); }
+      OutputStream f = (outs.size () == 1 ? outs.get (0) : new TeeOutputStream (outs));
+      toXML (XMLWriter.create (f), groups);
+      for (OutputStream out : outs) {
+        out.close (); }
+      written = true; }
+    finally {
+      if (! written) {
+        for (OutputStream out : outs) {
+          abort (out); }
+        for (File file : files) {
+          file.delete (); }}}
+  }
+
+  private static void abort (OutputStream f) {
+    if (f instanceof ParallelDeflater) {
+      ((ParallelDeflater) f).abort ();
+      return; }
+    try {
+      f.close (); }
+    catch (IOException e) {
+      // the file is deleted anyway
+      return; }
+  }
 
-        char[] c = "\n\n".toCharArray ();
-        ch.characters (c, 0, c.length);
-        c = " \u00A9 2023 Unicode\u00AE, Inc. ".toCharArray ();
-        ch.comment (c, 0, c.length);
-        c = "\n".toCharArray ();
-        ch.characters (c, 0, c.length);
-        c = " For terms of use, see http://www.unicode.org/terms_of_use.html ".toCharArray ();
-        ch.comment (c, 0, c.length);
-        c = "\n\n".toCharArray ();
-        ch.characters (c, 0, c.length);
+  public void toXML (XMLWriter w, Repertoire groups) throws Exception {
+    w.startDocument (); {
 
-        AttributesImpl at = new AttributesImpl ();
-        ch.startElement (NAMESPACE, "ucd", "ucd", at); {
+      w.characters ("\n\n");
+      w.comment (" \u00A9 2023 Unicode\u00AE, Inc. ");
+      w.characters ("\n");
+      w.comment (" For terms of use, see http://www.unicode.org/terms_of_use.html ");
+      w.characters ("\n\n");
 
-          if (description != null) {
-            ch.startElement (NAMESPACE, "description", "description", at); {
-              char[] d = description.toCharArray ();
-              ch.characters (d, 0, d.length);
-              ch.endElement (NAMESPACE, "description", "description"); }}
+      w.startElement ("ucd"); {
 
-          if (repertoire != null) {
-            AttributesImpl atb = new AttributesImpl ();
-            repertoire.toXML (ch, "repertoire", atb, 0, groups); }
+        if (description != null) {
+          w.startElement ("description"); {
+            w.characters (description);
+            w.endElement ("description"); }}
 
-          if (blocks != null) {
-            AttributesImpl atb = new AttributesImpl ();
-            blocks.toXML (ch, "blocks", atb); }
+        if (repertoire != null) {
+          repertoire.toXML (w, "repertoire", 0, groups); }
 
-          if (namedSequences != null) {
-            AttributesImpl atb = new AttributesImpl ();
-            namedSequences.toXML (ch, "named-sequences", atb); }
+        if (blocks != null) {
+          blocks.toXML (w, "blocks"); }
 
-          if (namedSequencesProv != null) {
-            AttributesImpl atb = new AttributesImpl ();
-            namedSequencesProv.toXML (ch, "provisional-named-sequences", atb); }
+        if (namedSequences != null) {
+          namedSequences.toXML (w, "named-sequences"); }
 
-          if (normalizationCorrections != null) {
-            AttributesImpl atb = new AttributesImpl ();
-            normalizationCorrections.toXML (ch, "normalization-corrections", atb); }
+        if (namedSequencesProv != null) {
+          namedSequencesProv.toXML (w, "provisional-named-sequences"); }
 
-          if (standardizedVariants != null) {
-            AttributesImpl atb = new AttributesImpl ();
-            standardizedVariants.toXML (ch, "standardized-variants", atb); }
+        if (normalizationCorrections != null) {
+          normalizationCorrections.toXML (w, "normalization-corrections"); }
 
-          if (cjkRadicals != null) {
-            AttributesImpl atb = new AttributesImpl ();
-            cjkRadicals.toXML (ch, "cjk-radicals", atb); }
+        if (standardizedVariants != null) {
+          standardizedVariants.toXML (w, "standardized-variants"); }
 
-          if (emojiSources != null) {
-            AttributesImpl atb = new AttributesImpl ();
-            emojiSources.toXML (ch, "emoji-sources", atb); }
+        if (cjkRadicals != null) {
+          cjkRadicals.toXML (w, "cjk-radicals"); }
 
-          if (doNotEmit != null) {
-            AttributesImpl atb = new AttributesImpl ();
-            doNotEmit.toXML (ch, "do-not-emit", atb); }
+        if (emojiSources != null) {
+          emojiSources.toXML (w, "emoji-sources"); }
 
-          ch.endElement (NAMESPACE, "ucd", "ucd"); }
+        if (doNotEmit != null) {
+          doNotEmit.toXML (w, "do-not-emit"); }
 
-        ch.endDocument (); }
-      f.close (); }
+        w.endElement ("ucd"); }
 
-    else {
-      System.err.println ("SAXSource.FEATURE not supported"); }
+      w.endDocument (); }
   }
 
   //----------------------------------------------------------------------------
@@ -2373,7 +2859,12 @@ public class Ucd {
 
   //---------------------------------------------------------------------------
   public void remove (Property p) {
-    repertoire.remove (p);
+    if (repertoire instanceof FrozenRepertoire) {
+      Repertoire r = ((FrozenRepertoire) repertoire).thaw ();
+      r.remove (p);
+      repertoire = r.freeze (); }
+    else {
+      repertoire.remove (p); }
     description += "; removed " + p;
   }
 
@@ -2415,7 +2906,7 @@ public class Ucd {
   //----------------------------------------------------------------------------
 
   public Repertoire group () {
-    Repertoire groups = new Repertoire ();
+    Repertoire groups = Repertoire.create ();
 
     for (Block b : blocks.byFirstCp.values ()) {
       // each block beginning and end
@@ -2469,6 +2960,9 @@ public class Ucd {
     System.out.println ("");
     System.out.println ("<id> = load (<dir>, <major>.<minor>.<dot> [, includeunihan])");
     System.out.println ("   <dir> contains a UCD in the released format (UnicodeData.txt, etc)");
+    System.out.println ("     it may also be a zip archive such as UCD.zip, or a list of");
+    System.out.println ("     directories and archives separated by '" + File.pathSeparator + "' (e.g. UCD.zip" + File.pathSeparator + "Unihan.zip),");
+    System.out.println ("     in which each file is taken from the first that has it");
     System.out.println ("   <major>, <minor>, and <dot> are the version number of this release;");
     System.out.println ("     these are used to determine exact set of files and their format.");
     System.out.println ("   includeunihan, if present, will cause Unihan.txt to be loaded");
@@ -2480,6 +2974,49 @@ public class Ucd {
     System.out.println ("   loaded as <id>");
     System.out.println ("");
 
+    System.out.println ("storage = array | ranges");
+    System.out.println ("   selects the representation of the repertoires loaded by the");
+    System.out.println ("   following commands: an array indexed by code point (the default),");
+    System.out.println ("   or a tree of ranges, which is faster to build and smaller when");
+    System.out.println ("   the repertoire has few groups");
+    System.out.println ("");
+
+    System.out.println ("loading = sequential | parallel");
+    System.out.println ("   selects how the following loaducd commands read the files:");
+    System.out.println ("   one after the other (the default), or on several threads; the");
+    System.out.println ("   result is the same");
+    System.out.println ("");
+
+    System.out.println ("loadprofile (<id> [, <file>])");
+    System.out.println ("   prints, for each file read by the loaducd of <id>, the bytes");
+    System.out.println ("   read, the lines and records parsed, the ranges put and the group");
+    System.out.println ("   boundaries created, the time and the memory allocated; with");
+    System.out.println ("   <file>, writes the same in JSON to <file>");
+    System.out.println ("");
+
+    System.out.println ("toxml (<id>, <file> [, <file>]... [, grouped] [, properties = unihan | nounihan])");
+    System.out.println ("   writes <id> in XML to <file>, with the properties shared by the");
+    System.out.println ("   code points of a group on the group element if grouped is present;");
+    System.out.println ("   if <file> ends in .gz or .zip, the XML is compressed on several");
+    System.out.println ("   threads in that format; with several files, the XML is built once");
+    System.out.println ("   and written to each; with properties, only the properties which");
+    System.out.println ("   come from the Unihan files, or only those which come from the other");
+    System.out.println ("   files, are written, as with project");
+    System.out.println ("");
+
+    System.out.println ("<id> = project (<id2>, unihan | nounihan)");
+    System.out.println ("   the properties of <id2> which come from the Unihan files, or only");
+    System.out.println ("   those which come from the other files, identified by <id>; <id2>");
+    System.out.println ("   must have been loaded with loaducd, and one loaducd of all the");
+    System.out.println ("   files can then give the three variants");
+    System.out.println ("");
+
+    System.out.println ("diagnostics (<id>, <file>)");
+    System.out.println ("   writes the problems found while loading <id> from the UCD files");
+    System.out.println ("   to <file>, one tab separated line per problem; they are also");
+    System.out.println ("   summarized on the error output at the end of the loading");
+    System.out.println ("");
+
     System.out.println ("to be continued ...");
   }
 
@@ -2489,23 +3026,32 @@ public class Ucd {
     final String s = "\\s*";
     final String idx = "([\\w]+)";
     final String file = "'([^']*)'";
+    final String fileList = "('[^']*'(?:" + s + "," + s + "'[^']*')*)";
     final String ucdVersion = "(\\d*)[.](\\d*)[.](\\d*)";
     final String isoVersion = "([\\w]*)";
     final String detailsOption = "(?:," + s + "details" + s + "=" + s + "([0-9])" + s + ")?";
     final String groupedOption = "(," + s + "grouped" + s + ")?";
+    final String propertySet = "((?:unihan)|(?:nounihan))";
+    final String propertiesOption = "(?:," + s + "properties" + s + "=" + s + propertySet + s + ")?";
     final String ucdfilesOption = "(?:," + s + "((?:include)|(?:exclude))" + s + "=" + s + "\\(" + s + "(" + idx + "(?:" + s + "," + s + idx + ")*)" + s + "\\)" +  s + ")??";
 
     final Pattern verbosityPattern = Pattern.compile ("verbosity" + s + "=" + s + "([0-9]*)");
+    final Pattern storagePattern = Pattern.compile ("storage" + s + "=" + s + "((?:array)|(?:ranges))");
+    final Pattern loadingPattern = Pattern.compile ("loading" + s + "=" + s + "((?:sequential)|(?:parallel))");
     final Pattern loadUcdPattern = Pattern.compile (idx + s + "=" + s + "loaducd" + s + "\\(" + s + file + s + "," + s + ucdVersion + s + ucdfilesOption + s + "\\)");
     final Pattern loadISOPattern = Pattern.compile (idx + s + "=" + s + "loadiso" + s + "\\(" + s + file + s + "," + s + isoVersion + s + "\\)");
     final Pattern loadXMLPattern = Pattern.compile (idx + s + "=" + s + "loadxml" + s + "\\(" + s + file + s + "\\)");
-    final Pattern toXMLPattern = Pattern.compile ("toxml" + s + "\\(" + s + idx + s + "," + s + file + s + groupedOption + s + "\\)");
+    final Pattern toXMLPattern = Pattern.compile ("toxml" + s + "\\(" + s + idx + s + "," + s + fileList + s + groupedOption + s + propertiesOption + s + "\\)");
+    final Pattern projectPattern = Pattern.compile (idx + s + "=" + s + "project" + s + "\\(" + s + idx + s + "," + s + propertySet + s + "\\)");
+    final Pattern filePattern = Pattern.compile (file);
     final Pattern dropPattern = Pattern.compile ("dropproperty" + s + "\\(" + s + idx + s + "," + s + idx + "\\)");
     final Pattern diffPattern = Pattern.compile ("diff" + s + "\\(" + s + idx + s + "," + s + idx + s + "," + s + file + s + detailsOption + s + "\\)");
     final Pattern deletePattern = Pattern.compile ("delete" + s + "\\(" + s + idx + s + "\\)");
     final Pattern enumeratedValuesPattern = Pattern.compile ("enumeratedvalues" + s + "\\(" + s + idx + s + "\\)");
     final Pattern usagePattern = Pattern.compile ("((?:-h)|(?:--help))");
     final Pattern internalStatsPattern = Pattern.compile ("internalstats" + s + "\\(" + s + idx + s + "\\)");
+    final Pattern loadProfilePattern = Pattern.compile ("loadprofile" + s + "\\(" + s + idx + s + "(?:," + s + file + s + ")?\\)");
+    final Pattern diagnosticsPattern = Pattern.compile ("diagnostics" + s + "\\(" + s + idx + s + "," + s + file + s + "\\)");
 
 
     Map<String, Ucd> ucds = new HashMap<String, Ucd> ();
@@ -2524,6 +3070,14 @@ public class Ucd {
         Parser.verbosity = verbosity;
         continue; }
 
+      else if ((m = storagePattern.matcher (args [i])).matches()) {
+        Repertoire.rangeStorage = "ranges".equals (m.group (1));
+        continue; }
+
+      else if ((m = loadingPattern.matcher (args [i])).matches()) {
+        parallelLoad = "parallel".equals (m.group (1));
+        continue; }
+
       else if ((m = loadUcdPattern.matcher (args [i])).matches ()) {
         String id = m.group (1);
         String ucdDir = m.group (2);
@@ -2561,9 +3115,18 @@ public class Ucd {
 
         if (verbosity >= 1 ) {
           System.out.println ("loading " + id + " from " + ucdDir + " as ucd version " + v + " (" + msg.trim () + ")"); }
-        ucds.put (id, new Ucd ().fromUCD (v,
-                                          new File (ucdDir).getAbsoluteFile ().toURI ().toURL (),
-                                          files)); }
+        Ucd ucd = new Ucd ();
+        if (UcdSource.isNeeded (ucdDir)) {
+          UcdSource source = new UcdSource (ucdDir);
+          try {
+            ucd.fromUCD (v, source.url (), files); }
+          finally {
+            source.close (); }}
+        else {
+          ucd.fromUCD (v, new File (ucdDir).getAbsoluteFile ().toURI ().toURL (), files); }
+        ucds.put (id, ucd);
+        if (! ucd.diagnostics.isEmpty ()) {
+          ucd.diagnostics.summary (System.err); }}
 
       else if ((m = loadISOPattern.matcher (args [i])).matches ()) {
         String id = m.group (1);
@@ -2571,7 +3134,10 @@ public class Ucd {
         String v = m.group (3);
         if (verbosity >= 1 ) {
           System.out.println ("loading " + id + " from " + ucdDir + " as iso version " + v); }
-        ucds.put (id, new Ucd ().fromISO (new File (ucdDir).getAbsoluteFile ().toURI ().toURL (), v)); }
+        Ucd ucd = new Ucd ().fromISO (new File (ucdDir).getAbsoluteFile ().toURI ().toURL (), v);
+        ucds.put (id, ucd);
+        if (ucd != null && ! ucd.diagnostics.isEmpty ()) {
+          ucd.diagnostics.summary (System.err); }}
 
       else if ((m = loadXMLPattern.matcher (args [i])).matches ()) {
         String id = m.group (1);
@@ -2582,13 +3148,35 @@ public class Ucd {
 
       else if ((m = toXMLPattern.matcher (args [i])).matches ()) {
         String id = m.group (1);
-        File f = new File (m.group (2));
+        List<File> f = new ArrayList<File> ();
+        Matcher fm = filePattern.matcher (m.group (2));
+        while (fm.find ()) {
+          f.add (new File (fm.group (1))); }
         boolean grouped = (m.group (3) != null);
+        String properties = m.group (4);
         if (verbosity >= 1 ) {
-          System.out.println ("writing " + id + " to " + f + " (grouped=" + grouped + ")"); }
+          System.out.println ("writing " + id + " to " + (f.size () == 1 ? f.get (0) : f) + " (grouped=" + grouped
+                              + (properties == null ? "" : ", properties=" + properties) + ")"); }
         Ucd ucd = ucds.get (id);
+        if (properties != null) {
+          if (ucd.populatedBy.isEmpty ()) {
+            System.err.println ("@@@ " + id + " was not loaded from UCD files, and cannot be projected on '" + properties + "'; ignoring the command");
+            continue; }
+          ucd = ucd.project (properties); }
         ucd.toXML (f, grouped ? ucd.group () : null); }
 
+      else if ((m = projectPattern.matcher (args [i])).matches ()) {
+        String id = m.group (1);
+        String id2 = m.group (2);
+        String properties = m.group (3);
+        if (verbosity >= 1 ) {
+          System.out.println ("projecting " + id2 + " on " + properties + " as " + id); }
+        Ucd ucd = ucds.get (id2);
+        if (ucd.populatedBy.isEmpty ()) {
+          System.err.println ("@@@ " + id2 + " was not loaded from UCD files, and cannot be projected on '" + properties + "'; ignoring the command");
+          continue; }
+        ucds.put (id, ucd.project (properties)); }
+
       else if ((m = dropPattern.matcher (args [i])).matches ()) {
         String id = m.group (1);
         String p = m.group (2);
@@ -2610,6 +3198,32 @@ public class Ucd {
         String id = m.group (1);
         ucds.get (id).internalStats (System.out); }
 
+      else if ((m = loadProfilePattern.matcher (args [i])).matches ()) {
+        String id = m.group (1);
+        LoadProfile profile = ucds.get (id).loadProfile;
+        if (profile == null) {
+          System.err.println ("@@@ " + id + " was not loaded from UCD files, and has no load profile; ignoring the command");
+          continue; }
+        if (m.group (2) == null) {
+          profile.print (System.out); }
+        else {
+          PrintStream out = new PrintStream (new File (m.group (2)), "UTF-8");
+          try {
+            profile.toJSON (out); }
+          finally {
+            out.close (); }}}
+
+      else if ((m = diagnosticsPattern.matcher (args [i])).matches ()) {
+        String id = m.group (1);
+        File f = new File (m.group (2));
+        if (verbosity >= 1 ) {
+          System.out.println ("writing the diagnostics of " + id + " to " + f); }
+        PrintStream out = new PrintStream (f, "UTF-8");
+        try {
+          ucds.get (id).diagnostics.report (out); }
+        finally {
+          out.close (); }}
+
       else if ((m = deletePattern.matcher (args [i])).matches ()) {
         String id = m.group (1);
         ucds.put (id, null); }
@@ -33,6 +33,7 @@
 
 package org.unicode.ucd;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -102,4 +103,7 @@ public enum UcdFile {
     for (UcdFile f : UcdFile.values ()) {
       allFiles.add (f); }
   }
+
+  // The files which make up Unihan; see Ucd.propertySet.
+  static final Set<UcdFile> unihanFiles = EnumSet.of (Unihan, UnihanNumeric);
 }
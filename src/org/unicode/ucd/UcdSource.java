@@ -0,0 +1,126 @@
+// COPYRIGHT AND PERMISSION NOTICE
+//
+// Copyright 2006-2016 Unicode Inc.
+//
+// All rights reserved.
+//
+// Permission is hereby granted, free of charge, to any person
+// obtaining a copy of this software and associated documentation
+// files (the "Software"), to deal in the Software without
+// restriction, including without limitation the rights to use, copy,
+// modify, merge, publish, distribute, and/or sell copies of the
+// Software, and to permit persons to whom the Software is furnished
+// to do so, provided that the above copyright notice(s) and this
+// permission notice appear in all copies of the Software and that
+// both the above copyright notice(s) and this permission notice
+// appear in supporting documentation.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT OF THIRD PARTY RIGHTS. IN NO EVENT SHALL THE
+// COPYRIGHT HOLDER OR HOLDERS INCLUDED IN THIS NOTICE BE LIABLE FOR
+// ANY CLAIM, OR ANY SPECIAL INDIRECT OR CONSEQUENTIAL DAMAGES, OR ANY
+// DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS,
+// WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS
+// ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE
+// OF THIS SOFTWARE.
+//
+// Except as contained in this notice, the name of a copyright holder
+// shall not be used in advertising or otherwise to promote the sale,
+// use or other dealings in this Software without prior written
+// authorization of the copyright holder.
+
+
+package org.unicode.ucd;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/** The files of a UCD, in one or more directories or zip archives
+ *  (such as UCD.zip and Unihan.zip). The URLs resolved against url ()
+ *  open the file in the first source which has it. The archives are
+ *  read through a zip file system; nothing is extracted to disk.
+ */
+public class UcdSource extends URLStreamHandler {
+
+  final List<Path> roots = new ArrayList<Path> ();
+  final List<FileSystem> archives = new ArrayList<FileSystem> ();
+
+  /** 'sources' are the paths of the directories and archives,
+   *  separated by File.pathSeparator.
+   */
+  public UcdSource (String sources) throws IOException {
+    for (String s : sources.split (File.pathSeparator)) {
+      Path p = Paths.get (s.trim ()).toAbsolutePath ();
+      if (Files.isDirectory (p)) {
+        roots.add (p); }
+      else if (Files.isRegularFile (p)) {
+        FileSystem fs = FileSystems.newFileSystem (p, (ClassLoader) null);
+        archives.add (fs);
+        roots.add (fs.getPath ("/")); }
+      else {
+        throw new FileNotFoundException (s); }}
+  }
+
+  /** Whether 'sources' needs a UcdSource, rather than a plain
+   *  file: URL to the directory.
+   */
+  public static boolean isNeeded (String sources) {
+    return sources.contains (File.pathSeparator) || ! new File (sources).isDirectory ();
+  }
+
+  public URL url () throws MalformedURLException {
+    return new URL ("ucd", null, -1, "/", this);
+  }
+
+  Path resolve (String path) {
+    while (path.startsWith ("/")) {
+      path = path.substring (1); }
+    for (Path root : roots) {
+      Path p = root.resolve (path);
+      if (Files.isRegularFile (p)) {
+        return p; }}
+    return null;
+  }
+
+  protected URLConnection openConnection (URL u) throws IOException {
+    final Path p = resolve (u.getPath ());
+    if (p == null) {
+      throw new FileNotFoundException (u.toString ()); }
+
+    return new URLConnection (u) {
+      public void connect () {
+      }
+
+      public long getContentLengthLong () {
+        try {
+          return Files.size (p); }
+        catch (IOException e) {
+          return -1; }
+      }
+
+      public InputStream getInputStream () throws IOException {
+        return Files.newInputStream (p);
+      }};
+  }
+
+  public void close () throws IOException {
+    for (FileSystem fs : archives) {
+      fs.close (); }
+    archives.clear ();
+  }
+}
@@ -0,0 +1,116 @@
+// COPYRIGHT AND PERMISSION NOTICE
+//
+// Copyright 2006-2016 Unicode Inc.
+//
+// All rights reserved.
+//
+// Permission is hereby granted, free of charge, to any person
+// obtaining a copy of this software and associated documentation
+// files (the "Software"), to deal in the Software without
+// restriction, including without limitation the rights to use, copy,
+// modify, merge, publish, distribute, and/or sell copies of the
+// Software, and to permit persons to whom the Software is furnished
+// to do so, provided that the above copyright notice(s) and this
+// permission notice appear in all copies of the Software and that
+// both the above copyright notice(s) and this permission notice
+// appear in supporting documentation.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT OF THIRD PARTY RIGHTS. IN NO EVENT SHALL THE
+// COPYRIGHT HOLDER OR HOLDERS INCLUDED IN THIS NOTICE BE LIABLE FOR
+// ANY CLAIM, OR ANY SPECIAL INDIRECT OR CONSEQUENTIAL DAMAGES, OR ANY
+// DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS,
+// WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS
+// ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE
+// OF THIS SOFTWARE.
+//
+// Except as contained in this notice, the name of a copyright holder
+// shall not be used in advertising or otherwise to promote the sale,
+// use or other dealings in this Software without prior written
+// authorization of the copyright holder.
+
+package org.unicode.ucd;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/** A dictionary of property values, which maps each value to a
+ *  canonical instance of it.
+ *  The parsers create a new String for each value they read, so that
+ *  values like "N" or "Lo" exist in many copies; once they have gone
+ *  through the pool, there is only one of each.
+ */
+
+public class ValuePool {
+
+  protected Map<Object, Object> canonical = new HashMap<Object, Object> ();
+
+  // The non-canonical instances replaced so far, so that each is
+  // counted once in bytesSaved.
+  protected Map<Object, Object> replaced = new IdentityHashMap<Object, Object> ();
+  protected long bytesSaved = 0;
+
+  // For each property, the last value looked up and its canonical
+  // instance; consecutive groups often have the same instance.
+  protected Object[] lastValue = new Object [0];
+  protected Object[] lastCanonical = new Object [0];
+
+  public Object intern (Object v) {
+    Object c = canonical.get (v);
+    if (c == null) {
+      canonical.put (v, v);
+      return v; }
+    if (c != v && replaced.put (v, v) == null) {
+      bytesSaved += sizeOf (v); }
+    return c;
+  }
+
+  // Same as intern, for the value of a property; values which are
+  // neither strings nor CodePoints (such as sets of name aliases) are
+  // returned as is.
+  public Object intern (Property p, Object v) {
+    if (! (v instanceof String || v instanceof CodePoints)) {
+      return v; }
+
+    int i = p.getOrdinal ();
+    if (i >= lastValue.length) {
+      lastValue = new Object [Property.count ()];
+      lastCanonical = new Object [Property.count ()]; }
+    if (lastValue [i] != v) {
+      lastValue [i] = v;
+      lastCanonical [i] = intern (v); }
+    return lastCanonical [i];
+  }
+
+  // Forget what is only needed while values are being interned.
+  public void done () {
+    replaced = new IdentityHashMap<Object, Object> ();
+    lastValue = new Object [0];
+    lastCanonical = new Object [0];
+  }
+
+  // An estimate of the memory used by a value: the object itself, plus
+  // its array of (Latin-1 or UTF-16) bytes or of ints, rounded up to 8.
+  static long sizeOf (Object v) {
+    if (v instanceof CodePoints) {
+      int length = ((CodePoints) v).length ();
+      return 24 + (length == 1 ? 0 : ((16 + 4 * length + 7) / 8) * 8); }
+
+    String s = (String) v;
+    int bytes = s.length ();
+    for (int i = 0; i < s.length (); i++) {
+      if (s.charAt (i) > 0xff) {
+        bytes = 2 * s.length ();
+        break; }}
+    return 24 + ((16 + bytes + 7) / 8) * 8;
+  }
+
+  public void internalStats (PrintStream out) {
+    out.println ("     " + canonical.size () + " distinct values, "
+                 + bytesSaved + " bytes saved by sharing them");
+  }
+}
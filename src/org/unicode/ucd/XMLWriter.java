@@ -0,0 +1,414 @@
+// COPYRIGHT AND PERMISSION NOTICE
+//
+// Copyright 2006-2016 Unicode Inc.
+//
+// All rights reserved.
+//
+// Permission is hereby granted, free of charge, to any person
+// obtaining a copy of this software and associated documentation
+// files (the "Software"), to deal in the Software without
+// restriction, including without limitation the rights to use, copy,
+// modify, merge, publish, distribute, and/or sell copies of the
+// Software, and to permit persons to whom the Software is furnished
+// to do so, provided that the above copyright notice(s) and this
+// permission notice appear in all copies of the Software and that
+// both the above copyright notice(s) and this permission notice
+// appear in supporting documentation.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT OF THIRD PARTY RIGHTS. IN NO EVENT SHALL THE
+// COPYRIGHT HOLDER OR HOLDERS INCLUDED IN THIS NOTICE BE LIABLE FOR
+// ANY CLAIM, OR ANY SPECIAL INDIRECT OR CONSEQUENTIAL DAMAGES, OR ANY
+// DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS,
+// WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS
+// ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE
+// OF THIS SOFTWARE.
+//
+// Except as contained in this notice, the name of a copyright holder
+// shall not be used in advertising or otherwise to promote the sale,
+// use or other dealings in this Software without prior written
+// authorization of the copyright holder.
+
+
+package org.unicode.ucd;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+
+import org.xml.sax.helpers.AttributesImpl;
+
+/** Writes the XML representation of a UCD. All the elements are in the
+ *  UCD namespace, which is declared on the root element. An element is
+ *  written by startElement, then its attributes, then its content, and
+ *  endElement; an element without content is written as an empty
+ *  element.
+ *
+ *  create gives the writer used by Ucd.toXML, which encodes directly in
+ *  UTF-8. withTransformer gives one on top of the Saxon 6.5.5
+ *  serializer, which toXML used to go through in the release build
+ *  (build.xml puts external/saxon-6.5.5.jar on the classpath); the two
+ *  produce the same bytes.
+ */
+public abstract class XMLWriter {
+
+  public abstract void startDocument () throws Exception;
+
+  /** Flushes the output, but does not close it. */
+  public abstract void endDocument () throws Exception;
+
+  public abstract void startElement (String name) throws Exception;
+
+  public abstract void attribute (String name, String value) throws Exception;
+
+  public void attribute (Property p, String value) throws Exception {
+    attribute (p.getShortName (), value);
+  }
+
+  /** An attribute whose value is a code point, in the form of Ucd.toU. */
+  public void codePointAttribute (String name, int cp) throws Exception {
+    attribute (name, Ucd.toU (cp));
+  }
+
+  public abstract void endElement (String name) throws Exception;
+
+  public abstract void characters (String s) throws Exception;
+
+  public abstract void comment (String s) throws Exception;
+
+  public static XMLWriter create (OutputStream out) {
+    return new Utf8Writer (out, Ucd.NAMESPACE);
+  }
+
+  public static XMLWriter withTransformer (OutputStream out) throws Exception {
+    return new TransformerWriter (out, Ucd.NAMESPACE);
+  }
+
+  //----------------------------------------------------------------------------
+
+  /** Encodes in a reusable buffer, with the element and attribute
+   *  names encoded once. The layout and the escaping are those of the
+   *  Saxon serializer with indent="yes": an element which follows a tag
+   *  starts on a new line, indented by 3 spaces per level; '&', '<',
+   *  '>' and CR are escaped everywhere, '"', tab and LF in attributes
+   *  too; all the other characters are written as they are, with '?'
+   *  for the unpaired surrogates.
+   */
+  static final class Utf8Writer extends XMLWriter {
+    private static final Charset UTF8 = Charset.forName ("UTF-8");
+    private static final int INDENT = 3;
+
+    private final OutputStream out;
+    private final byte[] namespaceDeclaration;
+    private final byte[] buffer = new byte [1 << 16];
+    private int length = 0;
+
+    // Whether the '>' of the last start tag is still to be written.
+    private boolean inStartTag = false;
+    private boolean namespaceDeclared = false;
+
+    // The state of the Saxon indenter: the depth, whether no newline
+    // has been written since the last start tag, whether the last
+    // thing written is a tag or a comment rather than text, and
+    // whether the text since the last tag is all white space.
+    private int level = 0;
+    private boolean sameLine = false;
+    private boolean afterTag = true;
+    private boolean allWhite = true;
+
+    private final Map<String, byte[]> names = new HashMap<String, byte[]> ();
+    private final byte[][] propertyNames = new byte [Property.count ()][];
+
+    Utf8Writer (OutputStream out, String namespace) {
+      this.out = out;
+      this.namespaceDeclaration = (" xmlns=\"" + namespace + "\"").getBytes (UTF8);
+    }
+
+    private byte[] name (String name) {
+      byte[] b = names.get (name);
+      if (b == null) {
+        b = name.getBytes (UTF8);
+        names.put (name, b); }
+      return b;
+    }
+
+    private void flushBuffer () throws IOException {
+      out.write (buffer, 0, length);
+      length = 0;
+    }
+
+    private void put (byte[] b) throws IOException {
+      if (length + b.length > buffer.length) {
+        flushBuffer ();
+        if (b.length > buffer.length) {
+          out.write (b);
+          return; }}
+      System.arraycopy (b, 0, buffer, length, b.length);
+      length += b.length;
+    }
+
+    private void put (char c) throws IOException {
+      if (length == buffer.length) {
+        flushBuffer (); }
+      buffer [length++] = (byte) c;
+    }
+
+    private void put (String ascii) throws IOException {
+      for (int i = 0; i < ascii.length (); i++) {
+        put (ascii.charAt (i)); }
+    }
+
+    private void closeStartTag () throws IOException {
+      if (inStartTag) {
+        put ('>');
+        inStartTag = false; }
+    }
+
+    private void indent () throws IOException {
+      closeStartTag ();
+      put ('\n');
+      for (int i = 0; i < level * INDENT; i++) {
+        put (' '); }
+      sameLine = false;
+    }
+
+    // The longest encoding of a char, "&amp;".
+    private static final int MAX_ENCODED = 5;
+
+    private void escape (String s, boolean inAttribute) throws IOException {
+      int n = s.length ();
+      for (int i = 0; i < n; i++) {
+        if (length + MAX_ENCODED > buffer.length) {
+          flushBuffer (); }
+        char c = s.charAt (i);
+        if (c < 0x80) {
+          switch (c) {
+            case '&': put ("&amp;"); break;
+            case '<': put ("&lt;"); break;
+            case '>': put ("&gt;"); break;
+            case '\r': put ("&#xD;"); break;
+            case '"':
+              if (inAttribute) {
+                put ("&#34;"); }
+              else {
+                buffer [length++] = (byte) c; }
+              break;
+            case '\n':
+              if (inAttribute) {
+                put ("&#xA;"); }
+              else {
+                buffer [length++] = (byte) c; }
+              break;
+            case '\t':
+              if (inAttribute) {
+                put ("&#x9;"); }
+              else {
+                buffer [length++] = (byte) c; }
+              break;
+            default:
+              buffer [length++] = (byte) c; }}
+        else if (c < 0x800) {
+          buffer [length++] = (byte) (0xC0 | (c >> 6));
+          buffer [length++] = (byte) (0x80 | (c & 0x3F)); }
+        else if (Character.isHighSurrogate (c) && i + 1 < n && Character.isLowSurrogate (s.charAt (i + 1))) {
+          int cp = Character.toCodePoint (c, s.charAt (++i));
+          buffer [length++] = (byte) (0xF0 | (cp >> 18));
+          buffer [length++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+          buffer [length++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+          buffer [length++] = (byte) (0x80 | (cp & 0x3F)); }
+        else if (Character.isSurrogate (c)) {
+          buffer [length++] = '?'; }
+        else {
+          buffer [length++] = (byte) (0xE0 | (c >> 12));
+          buffer [length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+          buffer [length++] = (byte) (0x80 | (c & 0x3F)); }}
+    }
+
+    public void startDocument () throws IOException {
+      put ("<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"yes\"?>");
+    }
+
+    public void endDocument () throws IOException {
+      closeStartTag ();
+      flushBuffer ();
+      out.flush ();
+    }
+
+    public void startElement (String name) throws IOException {
+      if (afterTag) {
+        indent (); }
+      closeStartTag ();
+      put ('<');
+      put (name (name));
+      if (! namespaceDeclared) {
+        put (namespaceDeclaration);
+        namespaceDeclared = true; }
+      inStartTag = true;
+      level++;
+      sameLine = true;
+      afterTag = true;
+      allWhite = true;
+    }
+
+    private void attribute (byte[] name, String value) throws IOException {
+      put (' ');
+      put (name);
+      put ('=');
+      put ('"');
+      escape (value, true);
+      put ('"');
+    }
+
+    public void attribute (String name, String value) throws IOException {
+      attribute (name (name), value);
+    }
+
+    public void codePointAttribute (String name, int cp) throws IOException {
+      if (cp < 0 || cp > 0xFFFFFF) {
+        attribute (name, Ucd.toU (cp));
+        return; }
+      put (' ');
+      put (name (name));
+      put ('=');
+      put ('"');
+      if (length + 6 > buffer.length) {
+        flushBuffer (); }
+      length = Ucd.appendU (cp, buffer, length);
+      put ('"');
+    }
+
+    public void attribute (Property p, String value) throws IOException {
+      byte[] name = propertyNames [p.getOrdinal ()];
+      if (name == null) {
+        name = p.getShortName ().getBytes (UTF8);
+        propertyNames [p.getOrdinal ()] = name; }
+      attribute (name, value);
+    }
+
+    public void endElement (String name) throws IOException {
+      level--;
+      if (afterTag && ! sameLine) {
+        indent (); }
+      sameLine = false;
+      afterTag = true;
+      allWhite = true;
+      if (inStartTag) {
+        put ('/');
+        put ('>');
+        inStartTag = false; }
+      else {
+        put ('<');
+        put ('/');
+        put (name (name));
+        put ('>'); }
+    }
+
+    public void characters (String s) throws IOException {
+      for (int i = 0; i < s.length (); i++) {
+        char c = s.charAt (i);
+        if (c == '\n') {
+          sameLine = false; }
+        if (! Character.isWhitespace (c)) {
+          allWhite = false; }}
+      closeStartTag ();
+      escape (s, false);
+      if (! allWhite) {
+        afterTag = false; }
+    }
+
+    public void comment (String s) throws IOException {
+      closeStartTag ();
+      put ("<!--");
+      put (s.getBytes (UTF8));
+      put ("-->");
+      afterTag = true;
+    }
+  }
+
+  //----------------------------------------------------------------------------
+
+  /** Goes through an identity TransformerHandler of Saxon, as Ucd.toXML
+   *  did in the release build; the attributes of an element are
+   *  collected until its start tag can be given to the handler.
+   */
+  static final class TransformerWriter extends XMLWriter {
+    static final String SAXON = "com.icl.saxon.TransformerFactoryImpl";
+
+    private final TransformerHandler ch;
+    private final String namespace;
+    private String pendingElement = null;
+    private AttributesImpl pendingAttributes = null;
+
+    TransformerWriter (OutputStream out, String namespace) throws Exception {
+      TransformerFactory tfactory = TransformerFactory.newInstance (SAXON, null);
+      if (! tfactory.getFeature (SAXSource.FEATURE)) {
+        throw new UnsupportedOperationException ("SAXSource.FEATURE not supported"); }
+
+      // no transform; we just want a serializer
+      ch = ((SAXTransformerFactory) tfactory).newTransformerHandler ();
+      ch.setResult (new StreamResult (out));
+
+      Transformer transformer = ch.getTransformer ();
+      transformer.setOutputProperty (OutputKeys.INDENT, "yes");
+      transformer.setOutputProperty (OutputKeys.STANDALONE, "yes");
+      transformer.setOutputProperty (OutputKeys.METHOD, "xml");
+
+      this.namespace = namespace;
+    }
+
+    private void startPendingElement () throws Exception {
+      if (pendingElement != null) {
+        ch.startElement (namespace, pendingElement, pendingElement, pendingAttributes);
+        pendingElement = null;
+        pendingAttributes = null; }
+    }
+
+    public void startDocument () throws Exception {
+      ch.startDocument ();
+    }
+
+    public void endDocument () throws Exception {
+      startPendingElement ();
+      ch.endDocument ();
+    }
+
+    public void startElement (String name) throws Exception {
+      startPendingElement ();
+      pendingElement = name;
+      pendingAttributes = new AttributesImpl ();
+    }
+
+    public void attribute (String name, String value) {
+      pendingAttributes.addAttribute ("", name, name, "CDATA", value);
+    }
+
+    public void endElement (String name) throws Exception {
+      startPendingElement ();
+      ch.endElement (namespace, name, name);
+    }
+
+    public void characters (String s) throws Exception {
+      startPendingElement ();
+      char[] c = s.toCharArray ();
+      ch.characters (c, 0, c.length);
+    }
+
+    public void comment (String s) throws Exception {
+      startPendingElement ();
+      char[] c = s.toCharArray ();
+      ch.comment (c, 0, c.length);
+    }
+  }
+}
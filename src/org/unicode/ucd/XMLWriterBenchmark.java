@@ -0,0 +1,77 @@
+// COPYRIGHT AND PERMISSION NOTICE
+//
+// Copyright 2006-2016 Unicode Inc.
+//
+// All rights reserved.
+//
+// Permission is hereby granted, free of charge, to any person
+// obtaining a copy of this software and associated documentation
+// files (the "Software"), to deal in the Software without
+// restriction, including without limitation the rights to use, copy,
+// modify, merge, publish, distribute, and/or sell copies of the
+// Software, and to permit persons to whom the Software is furnished
+// to do so, provided that the above copyright notice(s) and this
+// permission notice appear in all copies of the Software and that
+// both the above copyright notice(s) and this permission notice
+// appear in supporting documentation.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT OF THIRD PARTY RIGHTS. IN NO EVENT SHALL THE
+// COPYRIGHT HOLDER OR HOLDERS INCLUDED IN THIS NOTICE BE LIABLE FOR
+// ANY CLAIM, OR ANY SPECIAL INDIRECT OR CONSEQUENTIAL DAMAGES, OR ANY
+// DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS,
+// WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS
+// ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE
+// OF THIS SOFTWARE.
+//
+// Except as contained in this notice, the name of a copyright holder
+// shall not be used in advertising or otherwise to promote the sale,
+// use or other dealings in this Software without prior written
+// authorization of the copyright holder.
+
+
+package org.unicode.ucd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+
+/** Compares the XMLWriter used by Ucd.toXML with the one on top of the
+ *  Saxon serializer used by the release build, writing a UCD read from
+ *  an XML representation, such as ucd.all.flat.xml, in memory. Also
+ *  checks that both give the same bytes, and times the grouped output.
+ *
+ *  java -cp classes:external/saxon-6.5.5.jar org.unicode.ucd.XMLWriterBenchmark <ucd.all.flat.xml> [runs]
+ */
+
+public class XMLWriterBenchmark {
+
+  static byte[] run (String label, Ucd ucd, int size, boolean transformer, Repertoire groups) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream (size);
+    long start = System.nanoTime ();
+    ucd.toXML (transformer ? XMLWriter.withTransformer (out) : XMLWriter.create (out), groups);
+    long ns = System.nanoTime () - start;
+    System.out.println ("  " + label + "\t" + (ns / 1000000) + " ms\t"
+                        + (out.size () * 1000L / ns) + " MB/s");
+    return out.toByteArray ();
+  }
+
+  public static void main (String[] args) throws Exception {
+    URL url = new File (args [0]).getAbsoluteFile ().toURI ().toURL ();
+    int runs = args.length > 1 ? Integer.parseInt (args [1]) : 5;
+
+    Ucd ucd = new Ucd ().fromXML (url);
+    int size = (int) new File (args [0]).length ();
+    Repertoire groups = ucd.group ();
+
+    for (int r = 0; r < runs; r++) {
+      byte[] t = run ("transformer", ucd, size, true, null);
+      byte[] u = run ("utf8       ", ucd, size, false, null);
+      if (! Arrays.equals (t, u)) {
+        System.out.println ("@@@ the two writers give different output"); }
+      run ("grouped    ", ucd, size, false, groups); }
+  }
+}